@@ -25,38 +25,27 @@
 package net.runelite.cache.client;
 
 import com.google.common.base.Stopwatch;
-import io.netty.bootstrap.Bootstrap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
-import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import net.runelite.cache.fs.Archive;
 import net.runelite.cache.fs.Index;
 import net.runelite.cache.fs.Storage;
 import net.runelite.cache.fs.Store;
 import net.runelite.cache.index.ArchiveData;
 import net.runelite.cache.index.IndexData;
-import net.runelite.protocol.update.decoders.HandshakeResponseDecoder;
-import net.runelite.protocol.update.encoders.ArchiveRequestEncoder;
-import net.runelite.protocol.update.encoders.EncryptionEncoder;
-import net.runelite.protocol.api.update.ArchiveRequestPacket;
 import net.runelite.protocol.api.login.HandshakeResponseType;
 import net.runelite.cache.util.Crc32;
-import net.runelite.protocol.api.handshake.UpdateHandshakePacket;
-import net.runelite.protocol.handshake.UpdateHandshakeEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,19 +57,21 @@ public class CacheClient implements AutoCloseable
 	private static final int PORT = 43594;
 
 	private static final int MAX_REQUESTS = 19; // too many and the server closes the conncetion
+	private static final int MAX_PENDING_WRITES = 512; // archives requested but not yet written
 
 	private final Store store; // store cache will be written to
 	private final String host;
 	private final int clientRevision;
-	private DownloadWatcher watcher;
+	private final DownloadWatcher watcher;
 
-	private ClientState state;
+	private volatile ClientState state;
 
-	private final EventLoopGroup group = new NioEventLoopGroup(1);
-	private Channel channel;
+	private final EventLoopGroup group;
+	private final List<CacheConnection> connections = new ArrayList<>();
+	private int nextConnection;
 
-	private CompletableFuture<HandshakeResponseType> handshakeFuture;
-	private final Queue<PendingFileRequest> requests = new ArrayDeque<>();
+	private final Object windowLock = new Object();
+	private volatile DownloadMetrics metrics = new DownloadMetrics();
 
 	public CacheClient(Store store, int clientRevision)
 	{
@@ -89,73 +80,86 @@ public class CacheClient implements AutoCloseable
 
 	public CacheClient(Store store, String host, int clientRevision)
 	{
-		this.store = store;
-		this.host = host;
-		this.clientRevision = clientRevision;
+		this(store, host, clientRevision, null, 1, MAX_REQUESTS);
 	}
 
 	public CacheClient(Store store, int clientRevision, DownloadWatcher watcher)
 	{
-		this(store, clientRevision);
+		this(store, HOST, clientRevision, watcher, 1, MAX_REQUESTS);
+	}
+
+	/**
+	 * @param store store cache will be written to
+	 * @param host update server host
+	 * @param clientRevision client revision
+	 * @param watcher watcher to pass downloaded archives to instead of
+	 * saving them to the store, or null
+	 * @param connections number of connections to download over
+	 * @param maxRequests maximum number of requests in flight on each
+	 * connection
+	 */
+	public CacheClient(Store store, String host, int clientRevision, DownloadWatcher watcher, int connections, int maxRequests)
+	{
+		this.store = store;
+		this.host = host;
+		this.clientRevision = clientRevision;
 		this.watcher = watcher;
+		this.group = new NioEventLoopGroup(connections);
+
+		for (int i = 0; i < connections; ++i)
+		{
+			this.connections.add(new CacheConnection(this, maxRequests));
+		}
 	}
 
 	public void connect()
 	{
-		Bootstrap b = new Bootstrap();
-		b.group(group)
-			.channel(NioSocketChannel.class)
-			.option(ChannelOption.TCP_NODELAY, true)
-			.handler(new ChannelInitializer<SocketChannel>()
-			{
-				@Override
-				public void initChannel(SocketChannel ch) throws Exception
-				{
-					ChannelPipeline p = ch.pipeline();
-
-					//p.addFirst(new HttpProxyHandler(new InetSocketAddress("runelite.net", 3128)));
-					p.addLast("decoder", new HandshakeResponseDecoder());
-
-					p.addLast(
-						new CacheClientHandler(),
-						new HandshakeResponseHandler(CacheClient.this),
-						new ArchiveResponseHandler(CacheClient.this)
-					);
-
-					p.addLast(
-						new UpdateHandshakeEncoder(),
-						new EncryptionEncoder(),
-						new ArchiveRequestEncoder()
-					);
-				}
-			});
-
-		// Start the client.
-		ChannelFuture f = b.connect(host, PORT).syncUninterruptibly();
-		channel = f.channel();
+		for (CacheConnection connection : connections)
+		{
+			connection.connect(group, host, PORT);
+		}
 	}
 
+	/**
+	 * Handshake on every connection
+	 *
+	 * @return the first response which is not ok, or ok once every
+	 * connection has completed its handshake
+	 */
 	public CompletableFuture<HandshakeResponseType> handshake()
 	{
-		UpdateHandshakePacket handshakePacket = new UpdateHandshakePacket();
-		handshakePacket.setRevision(getClientRevision());
-
 		state = ClientState.HANDSHAKING;
 
-		assert handshakeFuture == null;
-		handshakeFuture = new CompletableFuture<>();
-
-		channel.writeAndFlush(handshakePacket);
+		List<CompletableFuture<HandshakeResponseType>> futures = new ArrayList<>();
+		for (CacheConnection connection : connections)
+		{
+			futures.add(connection.handshake(clientRevision));
+		}
 
-		logger.info("Sent handshake with revision {}", handshakePacket.getRevision());
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+			.thenApply(v ->
+			{
+				for (CompletableFuture<HandshakeResponseType> future : futures)
+				{
+					HandshakeResponseType response = future.join();
+					if (response != HandshakeResponseType.RESPONSE_OK)
+					{
+						return response;
+					}
+				}
 
-		return handshakeFuture;
+				state = ClientState.CONNECTED;
+				return HandshakeResponseType.RESPONSE_OK;
+			});
 	}
 
 	@Override
 	public void close()
 	{
-		channel.close().syncUninterruptibly();
+		for (CacheConnection connection : connections)
+		{
+			connection.close();
+		}
 		group.shutdownGracefully();
 	}
 
@@ -169,21 +173,16 @@ public class CacheClient implements AutoCloseable
 		return state;
 	}
 
-	void setState(ClientState state)
-	{
-		this.state = state;
-	}
-
-	CompletableFuture<HandshakeResponseType> getHandshakeFuture()
+	public DownloadMetrics getMetrics()
 	{
-		return handshakeFuture;
+		return metrics;
 	}
 
 	public List<IndexInfo> requestIndexes() throws IOException
 	{
 		logger.info("Requesting indexes");
 
-		FileResult result = requestFile(255, 255, true).join();
+		FileResult result = join(requestFile(255, 255, true));
 		result.decompress(null);
 
 		ByteBuf buffer = Unpooled.wrappedBuffer(result.getContents());
@@ -200,13 +199,57 @@ public class CacheClient implements AutoCloseable
 		return indexInfo;
 	}
 
+	/**
+	 * Download every out of date archive into the store. Index files are all
+	 * requested up front so that they download while the archives of
+	 * earlier indexes are being fetched. Downloaded archives are verified
+	 * and saved on a single writer thread, off of the network threads. At
+	 * most {@value #MAX_PENDING_WRITES} archives are requested ahead of the
+	 * writer, so a slow writer or watcher slows down the download rather
+	 * than queueing the archives in memory.
+	 *
+	 * @throws IOException
+	 */
 	public void download() throws IOException
 	{
 		Stopwatch stopwatch = Stopwatch.createStarted();
+		metrics = new DownloadMetrics();
 
+		ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("cache-client-writer")
+			.setDaemon(true)
+			.build());
+		try
+		{
+			download(writer);
+		}
+		finally
+		{
+			writer.shutdown();
+		}
+
+		metrics.finish();
+
+		stopwatch.stop();
+		logger.info("Download completed in {}: {}", stopwatch, metrics);
+	}
+
+	private void download(ExecutorService writer) throws IOException
+	{
 		List<IndexInfo> indexes = requestIndexes();
+
+		List<CompletableFuture<FileResult>> indexFutures = new ArrayList<>();
 		for (IndexInfo indexInfo : indexes)
 		{
+			indexFutures.add(requestFile(255, indexInfo.getId(), true));
+		}
+
+		List<CompletableFuture<Void>> pending = new ArrayList<>();
+		Semaphore pendingWrites = new Semaphore(MAX_PENDING_WRITES);
+
+		for (int idx = 0; idx < indexes.size(); ++idx)
+		{
+			IndexInfo indexInfo = indexes.get(idx);
 			int i = indexInfo.getId();
 			int crc = indexInfo.getCrc();
 			int revision = indexInfo.getRevision();
@@ -242,7 +285,7 @@ public class CacheClient implements AutoCloseable
 
 			logger.info("Downloading index {}", i);
 
-			FileResult indexFileResult = requestFile(255, i, true).join();
+			FileResult indexFileResult = join(indexFutures.get(idx));
 			indexFileResult.decompress(null);
 
 			logger.info("Downloaded index {}", i);
@@ -314,146 +357,157 @@ public class CacheClient implements AutoCloseable
 				// Add files
 				archive.setFileData(ad.getFiles());
 
-				CompletableFuture<FileResult> future = requestFile(index.getId(), ad.getId(), false);
-				future.handle((fr, ex) ->
+				if (!pendingWrites.tryAcquire())
 				{
-					byte[] data = fr.getCompressedData();
-
-					Crc32 crc32 = new Crc32();
-					crc32.update(data, 0, data.length);
-					int hash = crc32.getHash();
+					// make sure the requests being waited on have been sent
+					flush();
+					pendingWrites.acquireUninterruptibly();
+				}
 
-					if (hash != archive.getCrc())
-					{
-						logger.warn("crc mismatch on downloaded archive {}/{}: {} != {}",
-							archive.getIndex().getId(), archive.getArchiveId(),
-							hash, archive.getCrc());
-						throw new RuntimeException("crc mismatch");
-					}
+				CompletableFuture<FileResult> future;
+				try
+				{
+					future = requestFile(index.getId(), ad.getId(), false);
+				}
+				catch (IOException | RuntimeException ex)
+				{
+					pendingWrites.release();
+					throw ex;
+				}
 
-					if (watcher != null)
-					{
-						watcher.downloadComplete(archive, data);
-					}
-					else
-					{
-						try
-						{
-							Storage storage = store.getStorage();
-							storage.saveArchive(archive, data);
-						}
-						catch (IOException ex1)
-						{
-							logger.warn("unable to save archive data", ex1);
-						}
-					}
-					return null;
-				});
+				pending.add(future.thenAcceptAsync(fr -> save(archive, fr), writer)
+					.whenComplete((v, ex) -> pendingWrites.release()));
 			}
 		}
 
 		// flush any pending requests
-		channel.flush();
+		flush();
+
+		// wait for pending requests to be downloaded and written
+		join(CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])));
+	}
+
+	private void save(Archive archive, FileResult fr)
+	{
+		byte[] data = fr.getCompressedData();
 
-		while (!requests.isEmpty())
+		Crc32 crc32 = new Crc32();
+		crc32.update(data, 0, data.length);
+		int hash = crc32.getHash();
+
+		if (hash != archive.getCrc())
 		{
-			// wait for pending requests
-			synchronized (this)
+			logger.warn("crc mismatch on downloaded archive {}/{}: {} != {}",
+				archive.getIndex().getId(), archive.getArchiveId(),
+				hash, archive.getCrc());
+			metrics.failed();
+			return;
+		}
+
+		if (watcher != null)
+		{
+			watcher.downloadComplete(archive, data);
+		}
+		else
+		{
+			try
 			{
-				try
-				{
-					wait();
-				}
-				catch (InterruptedException ex)
-				{
-					logger.warn(null, ex);
-				}
+				Storage storage = store.getStorage();
+				storage.saveArchive(archive, data);
+			}
+			catch (IOException ex1)
+			{
+				logger.warn("unable to save archive data", ex1);
+				metrics.failed();
+				return;
 			}
 		}
 
-		stopwatch.stop();
-		logger.info("Download completed in {}", stopwatch);
+		metrics.written();
 	}
 
-	private synchronized CompletableFuture<FileResult> requestFile(int index, int fileId, boolean flush)
+	private CompletableFuture<FileResult> requestFile(int index, int fileId, boolean flush) throws IOException
 	{
 		if (state != ClientState.CONNECTED)
 		{
 			throw new IllegalStateException("Can't request files until connected!");
 		}
 
-		if (!flush)
+		CacheConnection connection = acquireConnection();
+		metrics.requested();
+		return connection.request(index, fileId, flush);
+	}
+
+	/**
+	 * Find a connection with room in its request window, spreading requests
+	 * over the connections. If every window is full, queued requests are
+	 * flushed and this blocks until a response frees a slot.
+	 *
+	 * @throws IOException if interrupted while waiting
+	 */
+	private CacheConnection acquireConnection() throws IOException
+	{
+		int count = connections.size();
+		synchronized (windowLock)
 		{
-			while (requests.size() >= MAX_REQUESTS)
+			for (;;)
 			{
-				channel.flush();
+				for (int i = 0; i < count; ++i)
+				{
+					CacheConnection connection = connections.get(nextConnection);
+					nextConnection = (nextConnection + 1) % count;
+
+					if (connection.tryAcquire())
+					{
+						return connection;
+					}
+				}
+
+				flush();
 
 				try
 				{
-					wait();
+					windowLock.wait();
 				}
 				catch (InterruptedException ex)
 				{
-					logger.warn("interrupted while waiting for requests", ex);
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted waiting for a request window", ex);
 				}
 			}
 		}
+	}
 
-		ArchiveRequestPacket archiveRequest = new ArchiveRequestPacket();
-		archiveRequest.setPriority(false);
-		archiveRequest.setIndex(index);
-		archiveRequest.setArchive(fileId);
-
-		CompletableFuture<FileResult> future = new CompletableFuture<>();
-		PendingFileRequest pf = new PendingFileRequest(index,
-			fileId, future);
-
-		logger.trace("Sending request for {}/{}", index, fileId);
-
-		requests.add(pf);
-
-		if (!flush)
-		{
-			channel.write(archiveRequest);
-		}
-		else
+	void requestWindowAvailable()
+	{
+		synchronized (windowLock)
 		{
-			channel.writeAndFlush(archiveRequest);
+			windowLock.notifyAll();
 		}
-
-		return future;
 	}
 
-	private PendingFileRequest findRequest(int index, int file)
+	private void flush()
 	{
-		for (PendingFileRequest pr : requests)
+		for (CacheConnection connection : connections)
 		{
-			if (pr.getIndex() == index && pr.getArchive() == file)
-			{
-				return pr;
-			}
+			connection.flush();
 		}
-		return null;
 	}
 
-	protected synchronized void onFileFinish(int index, int file, byte[] compressedData)
+	private static <T> T join(CompletableFuture<T> future) throws IOException
 	{
-		PendingFileRequest pr = findRequest(index, file);
-
-		if (pr == null)
+		try
 		{
-			logger.warn("File download {}/{} with no pending request", index, file);
-			return;
+			return future.join();
+		}
+		catch (CompletionException ex)
+		{
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
 		}
-
-		requests.remove(pr);
-
-		notify();
-
-		FileResult result = new FileResult(index, file, compressedData);
-
-		logger.debug("File download finished for index {} file {}, length {}", index, file, compressedData.length);
-
-		pr.getFuture().complete(result);
 	}
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import net.runelite.protocol.api.handshake.UpdateHandshakePacket;
+import net.runelite.protocol.api.login.HandshakeResponseType;
+import net.runelite.protocol.api.update.ArchiveRequestPacket;
+import net.runelite.protocol.handshake.UpdateHandshakeEncoder;
+import net.runelite.protocol.update.decoders.HandshakeResponseDecoder;
+import net.runelite.protocol.update.encoders.ArchiveRequestEncoder;
+import net.runelite.protocol.update.encoders.EncryptionEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single connection to the update server. Each connection has a window
+ * of requests which may be in flight at once, and requests are matched to
+ * responses by index and archive id.
+ */
+class CacheConnection
+{
+	private static final Logger logger = LoggerFactory.getLogger(CacheConnection.class);
+
+	private final CacheClient client;
+	private final Semaphore window;
+	private final Map<Integer, PendingFileRequest> requests = new ConcurrentHashMap<>();
+
+	private Channel channel;
+	private volatile ClientState state;
+	private CompletableFuture<HandshakeResponseType> handshakeFuture;
+
+	CacheConnection(CacheClient client, int maxRequests)
+	{
+		this.client = client;
+		this.window = new Semaphore(maxRequests);
+	}
+
+	void connect(EventLoopGroup group, String host, int port)
+	{
+		Bootstrap b = new Bootstrap();
+		b.group(group)
+			.channel(NioSocketChannel.class)
+			.option(ChannelOption.TCP_NODELAY, true)
+			.handler(new ChannelInitializer<SocketChannel>()
+			{
+				@Override
+				public void initChannel(SocketChannel ch) throws Exception
+				{
+					ChannelPipeline p = ch.pipeline();
+
+					//p.addFirst(new HttpProxyHandler(new InetSocketAddress("runelite.net", 3128)));
+					p.addLast("decoder", new HandshakeResponseDecoder());
+
+					p.addLast(
+						new CacheClientHandler(),
+						new HandshakeResponseHandler(CacheConnection.this),
+						new ArchiveResponseHandler(CacheConnection.this)
+					);
+
+					p.addLast(
+						new UpdateHandshakeEncoder(),
+						new EncryptionEncoder(),
+						new ArchiveRequestEncoder()
+					);
+				}
+			});
+
+		// Start the client.
+		ChannelFuture f = b.connect(host, port).syncUninterruptibly();
+		channel = f.channel();
+		channel.closeFuture().addListener(future -> onClose());
+	}
+
+	CompletableFuture<HandshakeResponseType> handshake(int revision)
+	{
+		UpdateHandshakePacket handshakePacket = new UpdateHandshakePacket();
+		handshakePacket.setRevision(revision);
+
+		state = ClientState.HANDSHAKING;
+
+		assert handshakeFuture == null;
+		handshakeFuture = new CompletableFuture<>();
+
+		channel.writeAndFlush(handshakePacket);
+
+		logger.info("Sent handshake with revision {}", handshakePacket.getRevision());
+
+		return handshakeFuture;
+	}
+
+	void close()
+	{
+		channel.close().syncUninterruptibly();
+	}
+
+	ClientState getState()
+	{
+		return state;
+	}
+
+	void setState(ClientState state)
+	{
+		this.state = state;
+	}
+
+	CompletableFuture<HandshakeResponseType> getHandshakeFuture()
+	{
+		return handshakeFuture;
+	}
+
+	/**
+	 * Reserve a slot in this connection's request window
+	 *
+	 * @return true if a slot was reserved
+	 */
+	boolean tryAcquire()
+	{
+		return window.tryAcquire();
+	}
+
+	/**
+	 * Send a request for a file. A slot in the request window must have
+	 * been reserved with {@link #tryAcquire()}.
+	 */
+	CompletableFuture<FileResult> request(int index, int fileId, boolean flush)
+	{
+		CompletableFuture<FileResult> future = new CompletableFuture<>();
+		PendingFileRequest pf = new PendingFileRequest(index, fileId, future);
+
+		if (!channel.isActive())
+		{
+			release();
+			future.completeExceptionally(new IOException("connection closed"));
+			return future;
+		}
+
+		ArchiveRequestPacket archiveRequest = new ArchiveRequestPacket();
+		archiveRequest.setPriority(false);
+		archiveRequest.setIndex(index);
+		archiveRequest.setArchive(fileId);
+
+		logger.trace("Sending request for {}/{}", index, fileId);
+
+		requests.put(key(index, fileId), pf);
+
+		if (!flush)
+		{
+			channel.write(archiveRequest);
+		}
+		else
+		{
+			channel.writeAndFlush(archiveRequest);
+		}
+
+		return future;
+	}
+
+	void flush()
+	{
+		channel.flush();
+	}
+
+	void onFileFinish(int index, int file, byte[] compressedData)
+	{
+		PendingFileRequest pr = requests.remove(key(index, file));
+
+		if (pr == null)
+		{
+			logger.warn("File download {}/{} with no pending request", index, file);
+			return;
+		}
+
+		release();
+
+		FileResult result = new FileResult(index, file, compressedData);
+
+		logger.debug("File download finished for index {} file {}, length {}", index, file, compressedData.length);
+
+		client.getMetrics().downloaded(compressedData.length);
+		pr.getFuture().complete(result);
+	}
+
+	private void onClose()
+	{
+		if (handshakeFuture != null && !handshakeFuture.isDone())
+		{
+			handshakeFuture.completeExceptionally(new IOException("connection closed"));
+		}
+
+		Iterator<PendingFileRequest> it = requests.values().iterator();
+		while (it.hasNext())
+		{
+			PendingFileRequest pr = it.next();
+			it.remove();
+			release();
+
+			pr.getFuture().completeExceptionally(new IOException("connection closed with pending request for "
+				+ pr.getIndex() + "/" + pr.getArchive()));
+		}
+	}
+
+	private void release()
+	{
+		window.release();
+		client.requestWindowAvailable();
+	}
+
+	private static int key(int index, int file)
+	{
+		return index << 16 | file;
+	}
+}
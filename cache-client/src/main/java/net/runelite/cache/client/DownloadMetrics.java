@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of a cache download. Bytes are counted as compressed archive
+ * data, as received from the server.
+ */
+public class DownloadMetrics
+{
+	private final long start = System.nanoTime();
+	private volatile long end;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder downloaded = new LongAdder();
+	private final LongAdder bytesDownloaded = new LongAdder();
+	private final LongAdder written = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	void requested()
+	{
+		requests.increment();
+	}
+
+	void downloaded(int length)
+	{
+		downloaded.increment();
+		bytesDownloaded.add(length);
+	}
+
+	void written()
+	{
+		written.increment();
+	}
+
+	void failed()
+	{
+		failed.increment();
+	}
+
+	void finish()
+	{
+		end = System.nanoTime();
+	}
+
+	public long getRequests()
+	{
+		return requests.sum();
+	}
+
+	public long getDownloaded()
+	{
+		return downloaded.sum();
+	}
+
+	public long getBytesDownloaded()
+	{
+		return bytesDownloaded.sum();
+	}
+
+	public long getWritten()
+	{
+		return written.sum();
+	}
+
+	public long getFailed()
+	{
+		return failed.sum();
+	}
+
+	public long getElapsedMillis()
+	{
+		long e = end != 0 ? end : System.nanoTime();
+		return TimeUnit.NANOSECONDS.toMillis(e - start);
+	}
+
+	public double getArchivesPerSecond()
+	{
+		long elapsed = getElapsedMillis();
+		return elapsed > 0 ? getDownloaded() * 1000.0 / elapsed : 0;
+	}
+
+	public double getBytesPerSecond()
+	{
+		long elapsed = getElapsedMillis();
+		return elapsed > 0 ? getBytesDownloaded() * 1000.0 / elapsed : 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d/%d files, %d written, %d failed, %.1f KB in %dms (%.1f files/s, %.1f KB/s)",
+			getDownloaded(), getRequests(), getWritten(), getFailed(),
+			getBytesDownloaded() / 1024.0, getElapsedMillis(),
+			getArchivesPerSecond(), getBytesPerSecond() / 1024.0);
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.IllegalReferenceCountException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU cache of encoded archive responses, weighted by their size
+ * in bytes.
+ * Entries are keyed by index and archive id, and are only returned if their
+ * crc matches the requested crc, so archives which change in the store are
+ * replaced rather than served stale.
+ * Lookups do not take a lock, so cache hits from each worker thread do not
+ * contend with each other.
+ */
+public class ArchiveCache
+{
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+
+	private static class Entry
+	{
+		private final int crc;
+		private final ByteBuf data;
+
+		Entry(int crc, ByteBuf data)
+		{
+			this.crc = crc;
+			this.data = data;
+		}
+	}
+
+	private final long maximumEntryWeight;
+	private final Cache<Integer, Entry> entries;
+	private final AtomicLong weight = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public ArchiveCache(long maximumWeight)
+	{
+		this(maximumWeight, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * @param maximumWeight maximum total size of the cached archives
+	 * @param concurrencyLevel number of segments the cache is split into.
+	 * Each segment holds an equal share of the maximum weight.
+	 */
+	public ArchiveCache(long maximumWeight, int concurrencyLevel)
+	{
+		this.maximumEntryWeight = maximumWeight / concurrencyLevel;
+		this.entries = CacheBuilder.newBuilder()
+			.concurrencyLevel(concurrencyLevel)
+			.maximumWeight(maximumWeight)
+			.<Integer, Entry>weigher((k, v) -> v.data.readableBytes())
+			.removalListener((RemovalListener<Integer, Entry>) notification ->
+			{
+				Entry entry = notification.getValue();
+				weight.addAndGet(-entry.data.readableBytes());
+				entry.data.release();
+			})
+			.build();
+	}
+
+	private static int key(int index, int archive)
+	{
+		return index << 24 | archive;
+	}
+
+	/**
+	 * Get a cached archive
+	 *
+	 * @param index index id
+	 * @param archive archive id
+	 * @param crc expected archive crc
+	 * @return a retained, read-only duplicate of the cached data, which the
+	 * caller must release, or null if not cached
+	 */
+	public ByteBuf get(int index, int archive, int crc)
+	{
+		Entry entry = entries.getIfPresent(key(index, archive));
+		if (entry == null || entry.crc != crc)
+		{
+			misses.increment();
+			return null;
+		}
+
+		try
+		{
+			entry.data.retain();
+		}
+		catch (IllegalReferenceCountException ex)
+		{
+			// evicted and released concurrently
+			misses.increment();
+			return null;
+		}
+
+		hits.increment();
+		// the cached memory is shared between connections, so
+		// it must never be written to downstream
+		return Unpooled.unmodifiableBuffer(entry.data.duplicate());
+	}
+
+	/**
+	 * Add an archive to the cache. The cache retains its own reference to
+	 * data, and the caller remains responsible for releasing theirs.
+	 *
+	 * @param index index id
+	 * @param archive archive id
+	 * @param crc archive crc
+	 * @param data encoded archive response
+	 */
+	public void put(int index, int archive, int crc, ByteBuf data)
+	{
+		int size = data.readableBytes();
+		if (size > maximumEntryWeight)
+		{
+			return;
+		}
+
+		weight.addAndGet(size);
+		entries.put(key(index, archive), new Entry(crc, data.duplicate().retain()));
+	}
+
+	public void clear()
+	{
+		entries.invalidateAll();
+		entries.cleanUp();
+	}
+
+	public int size()
+	{
+		return (int) entries.size();
+	}
+
+	public long getWeight()
+	{
+		return weight.get();
+	}
+
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+}
@@ -26,19 +26,23 @@ package net.runelite.cache.server;
 
 import com.google.common.primitives.Ints;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 import net.runelite.cache.fs.Archive;
 import net.runelite.cache.fs.Container;
 import net.runelite.cache.fs.Index;
 import net.runelite.cache.fs.Storage;
 import net.runelite.cache.fs.Store;
 import net.runelite.cache.fs.jagex.CompressionType;
+import net.runelite.cache.fs.jagex.ConcurrentDiskStorage;
 import net.runelite.cache.fs.jagex.DiskStorage;
 import net.runelite.protocol.api.update.ArchiveRequestPacket;
 import net.runelite.protocol.api.update.ArchiveResponsePacket;
+import net.runelite.protocol.update.encoders.ArchiveResponseEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,80 +51,179 @@ public class ArchiveRequestHandler extends SimpleChannelInboundHandler<ArchiveRe
 	private static final Logger logger = LoggerFactory.getLogger(ArchiveRequestHandler.class);
 
 	private final Store store;
+	private final ArchiveCache cache;
+	private final Executor diskExecutor;
 
-	public ArchiveRequestHandler(Store store)
+	/**
+	 * @param store store to serve archives from
+	 * @param cache cache of packed archives
+	 * @param diskExecutor executor to read archives from storage on, so
+	 * the event loop is never blocked on disk
+	 */
+	public ArchiveRequestHandler(Store store, ArchiveCache cache, Executor diskExecutor)
 	{
 		this.store = store;
+		this.cache = cache;
+		this.diskExecutor = diskExecutor;
 	}
 
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, ArchiveRequestPacket archiveRequest) throws Exception
 	{
-		if (archiveRequest.getIndex() == 255)
+		int index = archiveRequest.getIndex();
+		int archiveId = archiveRequest.getArchive();
+
+		logger.debug("Client {} requests index {} archive {}", ctx.channel().remoteAddress(), index, archiveId);
+
+		if (index == 255 && archiveId == 255)
 		{
-			handleRequest255(ctx, archiveRequest.getIndex(),
-				archiveRequest.getArchive());
+			handleRequest255(ctx);
+			return;
+		}
+
+		Archive archive = null;
+		int crc;
+		if (index == 255)
+		{
+			Index i = store.findIndex(archiveId);
+			if (i == null)
+			{
+				logger.warn("Missing index {}", archiveId);
+				return;
+			}
+
+			crc = i.getCrc();
 		}
 		else
 		{
-			handleRequest(ctx, archiveRequest.getIndex(),
-				archiveRequest.getArchive());
+			Index i = store.findIndex(index);
+			archive = i != null ? i.getArchive(archiveId) : null;
+			if (archive == null)
+			{
+				logger.warn("Missing archive {}/{}", index, archiveId);
+				return;
+			}
+
+			crc = archive.getCrc();
 		}
-	}
 
-	private void handleRequest255(ChannelHandlerContext ctx, int index, int archiveId) throws IOException
-	{
-		logger.info("Client {} requests 255: index {}, archive {}", ctx.channel().remoteAddress(), index, archiveId);
+		ByteBuf cached = cache.get(index, archiveId, crc);
+		if (cached != null)
+		{
+			ctx.writeAndFlush(cached);
+			return;
+		}
 
-		byte[] compressed;
-		if (archiveId == 255)
+		final Archive a = archive;
+		diskExecutor.execute(() ->
 		{
-			// index 255 data, for each index:
-			// 4 byte crc
-			// 4 byte revision
-			ByteBuf buffer = ctx.alloc().heapBuffer(store.getIndexes().size() * 8);
-			for (Index i : store.getIndexes())
+			ByteBuf packed;
+			try
+			{
+				packed = a != null ? loadArchive(a) : loadIndex(archiveId);
+			}
+			catch (IOException ex)
 			{
-				buffer.writeInt(i.getCrc());
-				buffer.writeInt(i.getRevision());
+				logger.warn("Unable to load archive {}/{}", index, archiveId, ex);
+				ctx.close();
+				return;
 			}
 
-			compressed = compress(CompressionType.NONE, Arrays.copyOf(buffer.array(), buffer.readableBytes()));
-			buffer.release();
-		}
-		else
+			if (packed == null)
+			{
+				logger.warn("Missing archive {}/{}", index, archiveId);
+				return; // is it possible to notify the client of an error with this?
+			}
+
+			ByteBuf response = encode(index, archiveId, packed);
+			cache.put(index, archiveId, crc, response);
+			// response is now shared with the cache
+			ctx.writeAndFlush(Unpooled.unmodifiableBuffer(response));
+		});
+	}
+
+	private void handleRequest255(ChannelHandlerContext ctx) throws IOException
+	{
+		// index 255 data, for each index:
+		// 4 byte crc
+		// 4 byte revision
+		ByteBuf buffer = ctx.alloc().heapBuffer(store.getIndexes().size() * 8);
+		for (Index i : store.getIndexes())
 		{
-			// Requires disk storage. Use packed index data from
-			// store as its crc matches
-			DiskStorage storage = (DiskStorage) store.getStorage();
-			compressed = storage.readIndex(archiveId);
+			buffer.writeInt(i.getCrc());
+			buffer.writeInt(i.getRevision());
 		}
 
+		byte[] compressed = compress(CompressionType.NONE, Arrays.copyOf(buffer.array(), buffer.readableBytes()));
+		buffer.release();
+
 		ArchiveResponsePacket response = new ArchiveResponsePacket();
-		response.setIndex(index);
-		response.setArchive(archiveId);
+		response.setIndex(255);
+		response.setArchive(255);
 		response.setData(compressed);
 
 		ctx.writeAndFlush(response);
 	}
 
-	private void handleRequest(ChannelHandlerContext ctx, int index, int archiveId) throws IOException
+	/**
+	 * Encode packed archive data into an archive response, so that it can be
+	 * cached and written to clients without being framed again. The packed
+	 * data is released.
+	 */
+	private static ByteBuf encode(int index, int archiveId, ByteBuf packed)
 	{
-		logger.info("Client {} requests index {} archive {}", ctx.channel().remoteAddress(), index, archiveId);
+		ByteBuf out = Unpooled.directBuffer(ArchiveResponseEncoder.getEncodedLength(packed.readableBytes()));
+		try
+		{
+			ArchiveResponseEncoder.encode(index, archiveId, packed, out);
+		}
+		finally
+		{
+			packed.release();
+		}
+		return out;
+	}
 
-		Index i = store.findIndex(index);
-		assert i != null;
+	private ByteBuf loadIndex(int indexId) throws IOException
+	{
+		// Requires disk storage. Use packed index data from
+		// store as its crc matches
+		Storage storage = store.getStorage();
+		byte[] packed;
+		if (storage instanceof ConcurrentDiskStorage)
+		{
+			packed = ((ConcurrentDiskStorage) storage).readIndex(indexId);
+		}
+		else
+		{
+			synchronized (storage)
+			{
+				packed = ((DiskStorage) storage).readIndex(indexId);
+			}
+		}
 
-		Archive archive = i.getArchive(archiveId);
-		assert archive != null;
+		return packed != null ? Unpooled.wrappedBuffer(packed) : null;
+	}
 
+	private ByteBuf loadArchive(Archive archive) throws IOException
+	{
 		Storage storage = store.getStorage();
-		byte[] packed = storage.loadArchive(archive); // is compressed, includes length and type
+		byte[] packed; // is compressed, includes length and type
+		if (storage.isThreadSafe())
+		{
+			packed = storage.loadArchive(archive);
+		}
+		else
+		{
+			synchronized (storage)
+			{
+				packed = storage.loadArchive(archive);
+			}
+		}
 
 		if (packed == null)
 		{
-			logger.warn("Missing archive {}/{}", index, archiveId);
-			return; // is it possible to notify the client of an error with this?
+			return null;
 		}
 
 		byte compression = packed[0];
@@ -138,15 +241,10 @@ public class ArchiveRequestHandler extends SimpleChannelInboundHandler<ArchiveRe
 			// The data the client writes will have it, but the data fetched from
 			// the update server will never have it
 			assert packed.length - expectedSize == 2 : "packed length != expected size";
-			packed = Arrays.copyOf(packed, packed.length - 2);
 		}
 
-		ArchiveResponsePacket response = new ArchiveResponsePacket();
-		response.setIndex(index);
-		response.setArchive(archiveId);
-		response.setData(packed);
-
-		ctx.writeAndFlush(response);
+		// wrap without the revision rather than copying
+		return Unpooled.wrappedBuffer(packed, 0, expectedSize);
 	}
 
 	private byte[] compress(int compression, byte[] data) throws IOException
@@ -31,6 +31,9 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import net.runelite.cache.fs.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,7 +44,15 @@ public class CacheServer implements AutoCloseable
 
 	private static final int PORT = 43594;
 
-	private final EventLoopGroup group = new NioEventLoopGroup(1);
+	private static final int DEFAULT_BOSS_THREADS = 1;
+	private static final int DEFAULT_WORKER_THREADS = 0;
+	private static final int DEFAULT_DISK_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+	private final EventLoopGroup bossGroup;
+	private final EventLoopGroup workerGroup;
+	private final ExecutorService diskExecutor;
+	private final ArchiveCache archiveCache;
 
 	private Channel channel;
 
@@ -49,15 +60,35 @@ public class CacheServer implements AutoCloseable
 	private final int revision;
 
 	public CacheServer(Store store, int revision)
+	{
+		this(store, revision, DEFAULT_BOSS_THREADS, DEFAULT_WORKER_THREADS, DEFAULT_DISK_THREADS, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param store store to serve
+	 * @param revision client revision
+	 * @param bossThreads number of threads accepting connections
+	 * @param workerThreads number of threads handling client I/O, or 0
+	 * for netty's default
+	 * @param diskThreads number of threads reading archives from storage.
+	 * Storage which is not thread safe is only read by one thread at a time.
+	 * @param cacheSize maximum size in bytes of encoded archive responses to
+	 * cache in memory
+	 */
+	public CacheServer(Store store, int revision, int bossThreads, int workerThreads, int diskThreads, long cacheSize)
 	{
 		this.store = store;
 		this.revision = revision;
+		this.bossGroup = new NioEventLoopGroup(bossThreads);
+		this.workerGroup = new NioEventLoopGroup(workerThreads);
+		this.diskExecutor = Executors.newFixedThreadPool(diskThreads, new DefaultThreadFactory("cache-server-disk", true));
+		this.archiveCache = new ArchiveCache(cacheSize);
 	}
 
 	public void start()
 	{
 		ServerBootstrap b = new ServerBootstrap();
-		b.group(group)
+		b.group(bossGroup, workerGroup)
 			.channel(NioServerSocketChannel.class)
 			.option(ChannelOption.TCP_NODELAY, true)
 			.childHandler(new CacheServerInitializer(this));
@@ -77,7 +108,10 @@ public class CacheServer implements AutoCloseable
 	public void close()
 	{
 		channel.close().syncUninterruptibly();
-		group.shutdownGracefully();
+		bossGroup.shutdownGracefully();
+		workerGroup.shutdownGracefully();
+		diskExecutor.shutdown();
+		archiveCache.clear();
 	}
 
 	public int getRevision()
@@ -89,4 +123,14 @@ public class CacheServer implements AutoCloseable
 	{
 		return store;
 	}
+
+	public ExecutorService getDiskExecutor()
+	{
+		return diskExecutor;
+	}
+
+	public ArchiveCache getArchiveCache()
+	{
+		return archiveCache;
+	}
 }
@@ -62,7 +62,7 @@ public class CacheServerInitializer extends ChannelInitializer<SocketChannel>
 		);
 
 		p.addLast(
-			new ArchiveRequestHandler(server.getStore()),
+			new ArchiveRequestHandler(server.getStore(), server.getArchiveCache(), server.getDiskExecutor()),
 			new EncryptionHandler(),
 			new HandshakeHandler(server)
 		);
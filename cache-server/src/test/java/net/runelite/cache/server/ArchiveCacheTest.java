@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.ReadOnlyBufferException;
+import net.runelite.protocol.update.encoders.XorEncoder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class ArchiveCacheTest
+{
+	@Test
+	public void testGet()
+	{
+		ArchiveCache cache = new ArchiveCache(1024);
+		ByteBuf data = Unpooled.wrappedBuffer(new byte[]{1, 2, 3, 4, 5, 6, 7}, 0, 5);
+		cache.put(1, 2, 42, data);
+		data.release();
+
+		ByteBuf cached = cache.get(1, 2, 42);
+		assertNotNull(cached);
+		assertEquals(5, cached.readableBytes());
+		assertEquals(1, cached.readByte());
+		cached.release();
+
+		// reading the returned buffer does not affect the cached copy
+		cached = cache.get(1, 2, 42);
+		assertEquals(5, cached.readableBytes());
+		cached.release();
+
+		// stale crc
+		assertNull(cache.get(1, 2, 43));
+		assertNull(cache.get(1, 3, 42));
+
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		cache.clear();
+		assertEquals(0, data.refCnt());
+	}
+
+	@Test
+	public void testEviction()
+	{
+		// a single segment, so the whole weight is available to the lru
+		ArchiveCache cache = new ArchiveCache(300, 1);
+		ByteBuf[] data = new ByteBuf[3];
+		for (int i = 0; i < data.length; ++i)
+		{
+			data[i] = Unpooled.wrappedBuffer(new byte[100]);
+			cache.put(0, i, 0, data[i]);
+		}
+
+		// touch archive 0 so archive 1 is the least recently used
+		cache.get(0, 0, 0).release();
+
+		ByteBuf extra = Unpooled.wrappedBuffer(new byte[100]);
+		cache.put(0, 3, 0, extra);
+
+		assertEquals(3, cache.size());
+		assertEquals(300, cache.getWeight());
+		assertNull(cache.get(0, 1, 0));
+		assertEquals(1, data[1].refCnt());
+
+		// too large to cache
+		ByteBuf large = Unpooled.wrappedBuffer(new byte[301]);
+		cache.put(0, 4, 0, large);
+		assertNull(cache.get(0, 4, 0));
+		assertEquals(1, large.refCnt());
+	}
+
+	@Test
+	public void testEvictWhileServing()
+	{
+		byte[] contents = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+		byte[] backing = contents.clone();
+
+		ArchiveCache cache = new ArchiveCache(1024, 1);
+		ByteBuf data = Unpooled.wrappedBuffer(backing);
+		cache.put(0, 0, 0, data);
+		data.release();
+
+		ByteBuf cached = cache.get(0, 0, 0);
+
+		// evicted while the response is being written, leaving the write
+		// with the only reference to the cached memory
+		cache.clear();
+		assertEquals(1, cached.refCnt());
+
+		XorEncoder encoder = new XorEncoder();
+		encoder.setKey((byte) 0x55);
+		EmbeddedChannel channel = new EmbeddedChannel(encoder);
+		channel.writeOutbound(cached);
+
+		ByteBuf out = channel.readOutbound();
+		assertEquals(contents.length, out.readableBytes());
+		for (int i = 0; i < contents.length; ++i)
+		{
+			assertEquals((byte) (contents[i] ^ 0x55), out.getByte(i));
+		}
+		out.release();
+		channel.finish();
+
+		// the cached memory is never encrypted in place
+		assertArrayEquals(contents, backing);
+	}
+
+	@Test(expected = ReadOnlyBufferException.class)
+	public void testReadOnly()
+	{
+		ArchiveCache cache = new ArchiveCache(1024, 1);
+		ByteBuf data = Unpooled.wrappedBuffer(new byte[]{1, 2, 3, 4});
+		cache.put(0, 0, 0, data);
+		data.release();
+
+		ByteBuf cached = cache.get(0, 0, 0);
+		try
+		{
+			cached.setByte(0, 42);
+		}
+		finally
+		{
+			cached.release();
+		}
+	}
+}
@@ -30,6 +30,7 @@ import io.minio.errors.InvalidPortException;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 import javax.sql.DataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -68,6 +69,11 @@ public class CacheConfiguration
 		dataSource.setUrl(jdbcUrl);
 		dataSource.setUsername(jdbcUsername);
 		dataSource.setPassword(jdbcPassword);
+
+		// have the driver send batched inserts as multi-row inserts
+		Properties properties = new Properties();
+		properties.setProperty("rewriteBatchedStatements", "true");
+		dataSource.setConnectionProperties(properties);
 		return dataSource;
 	}
 
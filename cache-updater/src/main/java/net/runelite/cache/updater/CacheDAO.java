@@ -28,6 +28,7 @@ import java.time.Instant;
 import java.util.List;
 import net.runelite.cache.updater.beans.ArchiveEntry;
 import net.runelite.cache.updater.beans.CacheEntry;
+import net.runelite.cache.updater.beans.FileEntry;
 import net.runelite.cache.updater.beans.IndexEntry;
 import org.sql2o.Connection;
 import org.sql2o.Query;
@@ -35,6 +36,9 @@ import org.sql2o.ResultSetIterable;
 
 class CacheDAO
 {
+	// maximum number of rows to insert in one batch
+	private static final int BATCH_SIZE = 1000;
+
 	// cache prepared statements for high volume queries
 	private Query associateArchive;
 	private Query findArchive, insertArchive;
@@ -63,6 +67,30 @@ class CacheDAO
 			.executeAndFetchLazy(ArchiveEntry.class);
 	}
 
+	/**
+	 * Find all archives which have ever been in an index with the given
+	 * index id, in any cache
+	 */
+	public ResultSetIterable<ArchiveEntry> findArchivesForIndexId(Connection con, int indexId)
+	{
+		return con.createQuery("select distinct archive.id, archive.archiveId, archive.nameHash,"
+			+ " archive.crc, archive.revision, archive.hash from archive "
+			+ " join index_archive on index_archive.archive = archive.id"
+			+ " join `index` on index.id = index_archive.index"
+			+ " where index.indexId = :indexId")
+			.addParameter("indexId", indexId)
+			.executeAndFetchLazy(ArchiveEntry.class);
+	}
+
+	/**
+	 * Find the hashes of all archives which have been uploaded
+	 */
+	public ResultSetIterable<ArchiveEntry> findArchiveHashes(Connection con)
+	{
+		return con.createQuery("select distinct hash from archive where hash is not null")
+			.executeAndFetchLazy(ArchiveEntry.class);
+	}
+
 	public CacheEntry createCache(Connection con, int revision, Instant date)
 	{
 		int cacheId = con.createQuery("insert into cache (revision, date) values (:revision, :date)")
@@ -174,4 +202,87 @@ class CacheDAO
 			.addParameter("nameHash", nameHash)
 			.executeUpdate();
 	}
+
+	/**
+	 * Insert archives in batches, setting the id of each entry
+	 */
+	public void createArchives(Connection con, List<ArchiveEntry> archives)
+	{
+		if (insertArchive == null)
+		{
+			insertArchive = con.createQuery("insert into archive (archiveId, nameHash, crc, revision, hash) values "
+				+ "(:archiveId, :nameHash, :crc, :revision, :hash)");
+		}
+
+		for (int i = 0; i < archives.size(); i += BATCH_SIZE)
+		{
+			List<ArchiveEntry> batch = archives.subList(i, Math.min(i + BATCH_SIZE, archives.size()));
+			for (ArchiveEntry entry : batch)
+			{
+				insertArchive
+					.addParameter("archiveId", entry.getArchiveId())
+					.addParameter("nameHash", entry.getNameHash())
+					.addParameter("crc", entry.getCrc())
+					.addParameter("revision", entry.getRevision())
+					.addParameter("hash", entry.getHash())
+					.addToBatch();
+			}
+
+			List<Integer> keys = insertArchive.executeBatch().getKeys(Integer.class);
+			if (keys.size() != batch.size())
+			{
+				throw new IllegalStateException("Inserted " + batch.size() + " archives but got " + keys.size() + " keys");
+			}
+
+			for (int j = 0; j < batch.size(); ++j)
+			{
+				batch.get(j).setId(keys.get(j));
+			}
+		}
+	}
+
+	public void associateArchivesToIndex(Connection con, List<ArchiveEntry> archives, IndexEntry index)
+	{
+		if (associateArchive == null)
+		{
+			associateArchive = con.createQuery("insert into index_archive (`index`, archive) values (:index, :archive)");
+		}
+
+		for (int i = 0; i < archives.size(); i += BATCH_SIZE)
+		{
+			for (ArchiveEntry archive : archives.subList(i, Math.min(i + BATCH_SIZE, archives.size())))
+			{
+				associateArchive
+					.addParameter("index", index.getId())
+					.addParameter("archive", archive.getId())
+					.addToBatch();
+			}
+			associateArchive.executeBatch();
+		}
+	}
+
+	/**
+	 * Insert files in batches. The archive id of each file entry is the id
+	 * of the archive row, not the archive id within the index.
+	 */
+	public void associateFilesToArchives(Connection con, List<FileEntry> files)
+	{
+		if (associateFile == null)
+		{
+			associateFile = con.createQuery("insert into file (archive, fileId, nameHash) values (:archive, :fileId, :nameHash)");
+		}
+
+		for (int i = 0; i < files.size(); i += BATCH_SIZE)
+		{
+			for (FileEntry file : files.subList(i, Math.min(i + BATCH_SIZE, files.size())))
+			{
+				associateFile
+					.addParameter("archive", file.getArchiveId())
+					.addParameter("fileId", file.getFileId())
+					.addParameter("nameHash", file.getNameHash())
+					.addToBatch();
+			}
+			associateFile.executeBatch();
+		}
+	}
 }
@@ -24,8 +24,13 @@
  */
 package net.runelite.cache.updater;
 
+import com.google.common.base.Stopwatch;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import lombok.Value;
 import net.runelite.cache.fs.Archive;
 import net.runelite.cache.fs.Index;
 import net.runelite.cache.fs.Storage;
@@ -33,15 +38,30 @@ import net.runelite.cache.fs.Store;
 import net.runelite.cache.index.FileData;
 import net.runelite.cache.updater.beans.ArchiveEntry;
 import net.runelite.cache.updater.beans.CacheEntry;
+import net.runelite.cache.updater.beans.FileEntry;
 import net.runelite.cache.updater.beans.IndexEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sql2o.Connection;
 import org.sql2o.ResultSetIterable;
 
 public class CacheStorage implements Storage
 {
+	private static final Logger logger = LoggerFactory.getLogger(CacheStorage.class);
+
+	@Value
+	private static class ArchiveKey
+	{
+		private final int archiveId;
+		private final int nameHash;
+		private final int crc;
+		private final int revision;
+	}
+
 	private CacheEntry cacheEntry;
 	private final CacheDAO cacheDao;
 	private final Connection con;
+	private boolean bulkSave = true;
 
 	public CacheStorage(CacheEntry cacheEntry, CacheDAO cacheDao, Connection con)
 	{
@@ -60,6 +80,21 @@ public class CacheStorage implements Storage
 		this.cacheEntry = cacheEntry;
 	}
 
+	public boolean isBulkSave()
+	{
+		return bulkSave;
+	}
+
+	/**
+	 * Set whether to save indexes in bulk, by loading the existing archives
+	 * of each index up front and inserting new rows in batches, rather than
+	 * looking up and inserting each archive individually
+	 */
+	public void setBulkSave(boolean bulkSave)
+	{
+		this.bulkSave = bulkSave;
+	}
+
 	@Override
 	public void init(Store store) throws IOException
 	{
@@ -104,6 +139,12 @@ public class CacheStorage implements Storage
 	@Override
 	public void save(Store store) throws IOException
 	{
+		if (bulkSave)
+		{
+			saveBulk(store);
+			return;
+		}
+
 		for (Index index : store.getIndexes())
 		{
 			IndexEntry entry = cacheDao.createIndex(con, cacheEntry, index.getId(), index.getCrc(), index.getRevision());
@@ -129,6 +170,72 @@ public class CacheStorage implements Storage
 		}
 	}
 
+	private void saveBulk(Store store)
+	{
+		for (Index index : store.getIndexes())
+		{
+			Stopwatch stopwatch = Stopwatch.createStarted();
+
+			IndexEntry entry = cacheDao.createIndex(con, cacheEntry, index.getId(), index.getCrc(), index.getRevision());
+
+			Map<ArchiveKey, ArchiveEntry> existing = new HashMap<>();
+			try (ResultSetIterable<ArchiveEntry> archives = cacheDao.findArchivesForIndexId(con, index.getId()))
+			{
+				for (ArchiveEntry archiveEntry : archives)
+				{
+					existing.putIfAbsent(new ArchiveKey(archiveEntry.getArchiveId(), archiveEntry.getNameHash(),
+						archiveEntry.getCrc(), archiveEntry.getRevision()), archiveEntry);
+				}
+			}
+
+			List<ArchiveEntry> indexArchives = new ArrayList<>(index.getArchives().size());
+			List<ArchiveEntry> newEntries = new ArrayList<>();
+			List<Archive> newArchives = new ArrayList<>();
+
+			for (Archive archive : index.getArchives())
+			{
+				ArchiveEntry archiveEntry = existing.get(new ArchiveKey(archive.getArchiveId(), archive.getNameHash(),
+					archive.getCrc(), archive.getRevision()));
+				if (archiveEntry == null)
+				{
+					archiveEntry = new ArchiveEntry();
+					archiveEntry.setArchiveId(archive.getArchiveId());
+					archiveEntry.setNameHash(archive.getNameHash());
+					archiveEntry.setCrc(archive.getCrc());
+					archiveEntry.setRevision(archive.getRevision());
+					archiveEntry.setHash(archive.getHash());
+
+					newEntries.add(archiveEntry);
+					newArchives.add(archive);
+				}
+
+				indexArchives.add(archiveEntry);
+			}
+
+			cacheDao.createArchives(con, newEntries);
+
+			List<FileEntry> files = new ArrayList<>();
+			for (int i = 0; i < newEntries.size(); ++i)
+			{
+				ArchiveEntry archiveEntry = newEntries.get(i);
+				for (FileData file : newArchives.get(i).getFileData())
+				{
+					FileEntry fileEntry = new FileEntry();
+					fileEntry.setArchiveId(archiveEntry.getId());
+					fileEntry.setFileId(file.getId());
+					fileEntry.setNameHash(file.getNameHash());
+					files.add(fileEntry);
+				}
+			}
+
+			cacheDao.associateFilesToArchives(con, files);
+			cacheDao.associateArchivesToIndex(con, indexArchives, entry);
+
+			logger.info("Saved index {}: {} archives ({} new, {} existing loaded), {} new files in {}",
+				index.getId(), indexArchives.size(), newEntries.size(), existing.size(), files.size(), stopwatch);
+		}
+	}
+
 	@Override
 	public byte[] loadArchive(Archive archive) throws IOException
 	{
@@ -24,19 +24,19 @@
  */
 package net.runelite.cache.updater;
 
+import com.google.common.io.BaseEncoding;
 import io.minio.MinioClient;
 import io.minio.errors.InvalidEndpointException;
 import io.minio.errors.InvalidPortException;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import net.runelite.cache.client.CacheClient;
 import net.runelite.cache.client.IndexInfo;
-import net.runelite.cache.fs.Archive;
 import net.runelite.cache.fs.Store;
+import net.runelite.cache.updater.beans.ArchiveEntry;
 import net.runelite.cache.updater.beans.CacheEntry;
 import net.runelite.cache.updater.beans.IndexEntry;
 import net.runelite.http.api.RuneLiteAPI;
@@ -50,6 +50,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.sql2o.Connection;
+import org.sql2o.ResultSetIterable;
 import org.sql2o.Sql2o;
 
 @SpringBootApplication
@@ -57,12 +58,17 @@ public class CacheUpdater implements CommandLineRunner
 {
 	private static final Logger logger = LoggerFactory.getLogger(CacheUpdater.class);
 
+	private static final int UPLOADS_QUEUED_PER_THREAD = 4;
+
 	private final Sql2o sql2o;
 	private final MinioClient minioClient;
 
 	@Value("${minio.bucket}")
 	private String minioBucket;
 
+	@Value("${minio.uploadThreads:8}")
+	private int uploadThreads;
+
 	@Autowired
 	public CacheUpdater(
 		@Qualifier("Runelite Cache SQL2O") Sql2o sql2o,
@@ -92,10 +98,11 @@ public class CacheUpdater implements CommandLineRunner
 			Store store = new Store(storage);
 			store.load();
 
-			ExecutorService executor = Executors.newSingleThreadExecutor();
+			Set<String> knownHashes = ConcurrentHashMap.newKeySet();
+			CacheUploader uploader = new CacheUploader(minioClient, minioBucket, knownHashes,
+				uploadThreads, uploadThreads * UPLOADS_QUEUED_PER_THREAD);
 
-			CacheClient client = new CacheClient(store, rsVersion,
-				(Archive archive, byte[] data) -> executor.submit(new CacheUploader(minioClient, minioBucket, archive, data)));
+			CacheClient client = new CacheClient(store, rsVersion, uploader);
 
 			client.connect();
 			HandshakeResponseType result = client.handshake().join();
@@ -115,6 +122,16 @@ public class CacheUpdater implements CommandLineRunner
 				return;
 			}
 
+			try (ResultSetIterable<ArchiveEntry> archives = cacheDao.findArchiveHashes(con))
+			{
+				for (ArchiveEntry archiveEntry : archives)
+				{
+					knownHashes.add(BaseEncoding.base16().encode(archiveEntry.getHash()));
+				}
+			}
+
+			logger.info("{} archives are already uploaded", knownHashes.size());
+
 			client.download();
 
 			CacheEntry newCache = created ? cache : cacheDao.createCache(con, rsVersion, Instant.now());
@@ -124,11 +141,7 @@ public class CacheUpdater implements CommandLineRunner
 
 			// ensure objects are added to the store before they become
 			// visible in the database
-			executor.shutdown();
-			while (!executor.awaitTermination(1, TimeUnit.SECONDS))
-			{
-				logger.debug("Waiting for termination of executor...");
-			}
+			uploader.finish();
 
 			// commit database
 			con.commit();
@@ -26,6 +26,7 @@ package net.runelite.cache.updater;
 
 import com.google.common.hash.Hashing;
 import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.minio.MinioClient;
 import io.minio.errors.ErrorResponseException;
 import io.minio.errors.InsufficientDataException;
@@ -35,39 +36,105 @@ import io.minio.errors.InvalidBucketNameException;
 import io.minio.errors.NoResponseException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.runelite.cache.client.DownloadWatcher;
 import net.runelite.cache.fs.Archive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xmlpull.v1.XmlPullParserException;
 
-public class CacheUploader implements Runnable
+/**
+ * Uploads downloaded archives to the object store, keyed by their sha256.
+ * Archives whose hash is already known, either from the archive table or
+ * from earlier in this run, are not uploaded again. Uploads run on a fixed
+ * pool of workers, and once too many uploads are queued the cache client's
+ * writer is blocked until they catch up, which in turn stops the client
+ * from requesting more archives.
+ */
+public class CacheUploader implements DownloadWatcher
 {
 	private static final Logger logger = LoggerFactory.getLogger(CacheUploader.class);
 
 	private final MinioClient minioClient;
 	private final String minioBucket;
-	private final Archive archive;
-	private final byte[] data;
+	private final Set<String> knownHashes;
+
+	private final ExecutorService executor;
+	private final Semaphore queue;
+
+	private final long start = System.nanoTime();
+	private final LongAdder uploadedObjects = new LongAdder();
+	private final LongAdder uploadedBytes = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
 
-	public CacheUploader(MinioClient minioClient, String minioBucket, Archive archive, byte[] data)
+	/**
+	 * @param minioClient object store client
+	 * @param minioBucket bucket to upload to
+	 * @param knownHashes hex encoded sha256 hashes of archives known to be
+	 * in the store. Hashes of uploaded archives are added to this set.
+	 * @param threads number of upload workers
+	 * @param maxQueued maximum number of uploads queued before blocking
+	 */
+	public CacheUploader(MinioClient minioClient, String minioBucket, Set<String> knownHashes, int threads, int maxQueued)
 	{
 		this.minioClient = minioClient;
 		this.minioBucket = minioBucket;
-		this.archive = archive;
-		this.data = data;
+		this.knownHashes = knownHashes;
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+			.setNameFormat("cache-uploader-%d")
+			.setDaemon(true)
+			.build());
+		this.queue = new Semaphore(maxQueued);
 	}
 
 	@Override
-	public void run()
+	public void downloadComplete(Archive archive, byte[] data)
 	{
 		byte[] hash = Hashing.sha256().hashBytes(data).asBytes();
 		String hashStr = BaseEncoding.base16().encode(hash);
 
 		archive.setHash(hash);
 
+		if (!knownHashes.add(hashStr))
+		{
+			// already in the store, or already queued this run
+			skipped.increment();
+			return;
+		}
+
+		queue.acquireUninterruptibly();
+		try
+		{
+			executor.execute(() ->
+			{
+				try
+				{
+					upload(hashStr, data);
+				}
+				finally
+				{
+					queue.release();
+				}
+			});
+		}
+		catch (RuntimeException ex)
+		{
+			queue.release();
+			knownHashes.remove(hashStr);
+			throw ex;
+		}
+	}
+
+	private void upload(String hashStr, byte[] data)
+	{
 		String path = new StringBuilder()
 			.append(hashStr.substring(0, 2))
 			.append('/')
@@ -76,8 +143,10 @@ public class CacheUploader implements Runnable
 
 		try
 		{
-			try (InputStream in = minioClient.getObject(minioBucket, path))
+			try
 			{
+				minioClient.statObject(minioBucket, path);
+				skipped.increment();
 				return; // already exists
 			}
 			catch (ErrorResponseException ex)
@@ -86,11 +155,60 @@ public class CacheUploader implements Runnable
 			}
 
 			minioClient.putObject(minioBucket, path, new ByteArrayInputStream(data), data.length, "binary/octet-stream");
+
+			uploadedObjects.increment();
+			uploadedBytes.add(data.length);
 		}
 		catch (ErrorResponseException | InsufficientDataException | InternalException | InvalidArgumentException | InvalidBucketNameException | NoResponseException | IOException | InvalidKeyException | NoSuchAlgorithmException | XmlPullParserException ex)
 		{
 			logger.warn("unable to upload data to store", ex);
+			knownHashes.remove(hashStr);
+			failed.increment();
 		}
 	}
 
+	/**
+	 * Wait for all queued uploads to complete
+	 *
+	 * @throws InterruptedException
+	 */
+	public void finish() throws InterruptedException
+	{
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+		{
+			logger.debug("Waiting for termination of executor...");
+		}
+
+		logger.info("Uploads complete: {}", this);
+	}
+
+	public long getUploadedObjects()
+	{
+		return uploadedObjects.sum();
+	}
+
+	public long getUploadedBytes()
+	{
+		return uploadedBytes.sum();
+	}
+
+	public long getSkipped()
+	{
+		return skipped.sum();
+	}
+
+	public long getFailed()
+	{
+		return failed.sum();
+	}
+
+	@Override
+	public String toString()
+	{
+		double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+		return String.format("%d objects, %.1f KB uploaded, %d skipped, %d failed in %.1fs (%.1f objects/s, %.1f KB/s)",
+			getUploadedObjects(), getUploadedBytes() / 1024.0, getSkipped(), getFailed(), seconds,
+			getUploadedObjects() / seconds, getUploadedBytes() / 1024.0 / seconds);
+	}
 }
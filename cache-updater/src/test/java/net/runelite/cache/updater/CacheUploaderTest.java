@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.updater;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.minio.MinioClient;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.runelite.cache.fs.Archive;
+import net.runelite.cache.fs.Index;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheUploaderTest
+{
+	private static final String BUCKET = "runelite";
+
+	private HttpServer server;
+	private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+	private final AtomicInteger puts = new AtomicInteger();
+
+	private MinioClient minioClient;
+
+	@Before
+	public void before() throws Exception
+	{
+		// a minimal stand-in for S3, supporting the requests made by the uploader
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+
+		minioClient = new MinioClient("http://127.0.0.1:" + server.getAddress().getPort());
+	}
+
+	@After
+	public void after()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testUpload() throws Exception
+	{
+		byte[] known = "known".getBytes(StandardCharsets.UTF_8);
+		byte[] stored = "stored".getBytes(StandardCharsets.UTF_8);
+		byte[] upload = "upload".getBytes(StandardCharsets.UTF_8);
+
+		Set<String> knownHashes = ConcurrentHashMap.newKeySet();
+		knownHashes.add(hash(known));
+		objects.put(path(hash(stored)), stored);
+
+		CacheUploader uploader = new CacheUploader(minioClient, BUCKET, knownHashes, 4, 1);
+
+		Index index = new Index(0);
+		Archive archive = new Archive(index, 0);
+		uploader.downloadComplete(archive, known);
+		uploader.downloadComplete(new Archive(index, 1), stored);
+		uploader.downloadComplete(new Archive(index, 2), upload);
+		// same payload as an archive already queued
+		uploader.downloadComplete(new Archive(index, 3), upload);
+		uploader.finish();
+
+		assertNotNull(archive.getHash());
+		assertEquals(hash(known), BaseEncoding.base16().encode(archive.getHash()));
+
+		assertEquals(1, puts.get());
+		assertArrayEquals(upload, objects.get(path(hash(upload))));
+		assertTrue(knownHashes.contains(hash(upload)));
+
+		assertEquals(1, uploader.getUploadedObjects());
+		assertEquals(upload.length, uploader.getUploadedBytes());
+		assertEquals(3, uploader.getSkipped());
+		assertEquals(0, uploader.getFailed());
+	}
+
+	private void handle(HttpExchange exchange) throws IOException
+	{
+		String path = exchange.getRequestURI().getPath();
+		String method = exchange.getRequestMethod();
+
+		if (exchange.getRequestURI().getQuery() != null && exchange.getRequestURI().getQuery().contains("location"))
+		{
+			respond(exchange, 200, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<LocationConstraint xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">us-east-1</LocationConstraint>")
+				.getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+
+		String prefix = "/" + BUCKET + "/";
+		if (!path.startsWith(prefix))
+		{
+			respond(exchange, 404, new byte[0]);
+			return;
+		}
+
+		String key = path.substring(prefix.length());
+		switch (method)
+		{
+			case "HEAD":
+			{
+				byte[] data = objects.get(key);
+				if (data == null)
+				{
+					exchange.sendResponseHeaders(404, -1);
+				}
+				else
+				{
+					SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+					format.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+					exchange.getResponseHeaders().set("Content-Length", Integer.toString(data.length));
+					exchange.getResponseHeaders().set("Content-Type", "binary/octet-stream");
+					exchange.getResponseHeaders().set("ETag", "\"" + key + "\"");
+					exchange.getResponseHeaders().set("Last-Modified", format.format(new Date()));
+					exchange.sendResponseHeaders(200, -1);
+				}
+				exchange.close();
+				break;
+			}
+			case "PUT":
+			{
+				objects.put(key, ByteStreams.toByteArray(exchange.getRequestBody()));
+				puts.incrementAndGet();
+				exchange.getResponseHeaders().set("ETag", "\"" + key + "\"");
+				respond(exchange, 200, new byte[0]);
+				break;
+			}
+			default:
+				respond(exchange, 405, new byte[0]);
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException
+	{
+		exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+
+	private static String hash(byte[] data)
+	{
+		return BaseEncoding.base16().encode(Hashing.sha256().hashBytes(data).asBytes());
+	}
+
+	private static String path(String hash)
+	{
+		return hash.substring(0, 2) + "/" + hash.substring(2);
+	}
+}
@@ -24,13 +24,28 @@
  */
 package net.runelite.cache;
 
+import com.google.gson.Gson;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
 import lombok.Getter;
 import lombok.Setter;
 import net.runelite.cache.definitions.AreaDefinition;
@@ -64,6 +79,7 @@ public class MapImageDumper
 	private static final int MAPICON_MAX_WIDTH = 5; // scale minimap icons down to this size so they fit..
 	private static final int MAPICON_MAX_HEIGHT = 6;
 	private static final int BLEND = 5; // number of surrounding tiles for ground blending
+	private static final String TILE_MANIFEST = "tiles.json";
 
 	private static int[] colorPalette = new ColorPalette(0.9d, 0, 512).getColorPalette();
 
@@ -155,9 +171,184 @@ public class MapImageDumper
 		drawObjects(image, 0, 0, region, z);
 		drawMapIcons(image, 0, 0, region, z);
 
+		// icons of neighboring regions can overlap onto this one
+		Graphics2D graphics = image.createGraphics();
+		for (int dx = -1; dx <= 1; ++dx)
+		{
+			for (int dy = -1; dy <= 1; ++dy)
+			{
+				Region neighbor = regionLoader.findRegionForWorldCoordinates(region.getBaseX() + dx * Region.X,
+					region.getBaseY() + dy * Region.Y);
+				if (neighbor != null && neighbor != region)
+				{
+					drawMapIcons(graphics, neighbor, z, dx * Region.X, -dy * Region.Y);
+				}
+			}
+		}
+		graphics.dispose();
+
 		return image;
 	}
 
+	/**
+	 * Render every region as a separate tile, on all planes, and write them
+	 * to the output directory as img-{z}-{regionId}.png. Regions are rendered
+	 * concurrently and written as soon as they are finished, so memory use is
+	 * bounded by the number of threads rather than the size of the map.
+	 *
+	 * @param outDir directory to write tiles to
+	 * @param executor executor to render tiles on
+	 * @param incremental if true, only re-render regions whose map or land
+	 * archives, or those of a neighboring region, have changed since the last
+	 * run into outDir, or whose locations could not be loaded last run and
+	 * now can be
+	 * @return the number of regions rendered
+	 * @throws IOException
+	 */
+	public int drawTiles(File outDir, ExecutorService executor, boolean incremental) throws IOException
+	{
+		outDir.mkdirs();
+
+		MapTileManifest manifest = buildTileManifest();
+		MapTileManifest previous = incremental ? readTileManifest(outDir) : null;
+
+		Set<Region> dirty = new HashSet<>();
+		if (previous == null || previous.definitionsCrc != manifest.definitionsCrc)
+		{
+			dirty.addAll(regionLoader.getRegions());
+		}
+		else
+		{
+			for (Region region : regionLoader.getRegions())
+			{
+				int[] crcs = manifest.regions.get(region.getRegionID());
+				if (!Arrays.equals(crcs, previous.regions.get(region.getRegionID())))
+				{
+					markDirty(dirty, region.getBaseX(), region.getBaseY());
+				}
+			}
+
+			// neighbors of removed regions blend into them
+			for (int regionId : previous.regions.keySet())
+			{
+				if (!manifest.regions.containsKey(regionId))
+				{
+					markDirty(dirty, ((regionId >> 8) & 0xFF) << 6, (regionId & 0xFF) << 6);
+					for (int z = 0; z < Region.Z; ++z)
+					{
+						new File(outDir, "img-" + z + "-" + regionId + ".png").delete();
+					}
+				}
+			}
+		}
+
+		logger.info("Rendering {} of {} regions", dirty.size(), regionLoader.getRegions().size());
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (Region region : dirty)
+		{
+			futures.add(executor.submit(() ->
+			{
+				for (int z = 0; z < Region.Z; ++z)
+				{
+					BufferedImage image = drawRegion(region, z);
+					File imageFile = new File(outDir, "img-" + z + "-" + region.getRegionID() + ".png");
+					ImageIO.write(image, "png", imageFile);
+				}
+				return null;
+			}));
+		}
+
+		try
+		{
+			for (Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			futures.forEach(f -> f.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted rendering tiles", ex);
+		}
+		catch (ExecutionException ex)
+		{
+			futures.forEach(f -> f.cancel(true));
+			throw new IOException("error rendering tiles", ex.getCause());
+		}
+
+		try (Writer writer = new FileWriter(new File(outDir, TILE_MANIFEST)))
+		{
+			new Gson().toJson(manifest, writer);
+		}
+
+		return dirty.size();
+	}
+
+	private void markDirty(Set<Region> dirty, int baseX, int baseY)
+	{
+		for (int dx = -1; dx <= 1; ++dx)
+		{
+			for (int dy = -1; dy <= 1; ++dy)
+			{
+				Region r = regionLoader.findRegionForWorldCoordinates(baseX + dx * Region.X, baseY + dy * Region.Y);
+				if (r != null)
+				{
+					dirty.add(r);
+				}
+			}
+		}
+	}
+
+	private MapTileManifest buildTileManifest()
+	{
+		MapTileManifest manifest = new MapTileManifest();
+
+		Index configs = store.getIndex(IndexType.CONFIGS);
+		int definitionsCrc = 0;
+		for (ConfigType type : new ConfigType[]{ConfigType.UNDERLAY, ConfigType.OVERLAY, ConfigType.OBJECT, ConfigType.AREA})
+		{
+			definitionsCrc = definitionsCrc * 31 + configs.getArchive(type.getId()).getCrc();
+		}
+		definitionsCrc = definitionsCrc * 31 + store.getIndex(IndexType.SPRITES).getCrc();
+		definitionsCrc = definitionsCrc * 31 + store.getIndex(IndexType.TEXTURES).getCrc();
+		manifest.definitionsCrc = definitionsCrc;
+
+		Index maps = store.getIndex(IndexType.MAPS);
+		for (Region region : regionLoader.getRegions())
+		{
+			int x = region.getRegionX();
+			int y = region.getRegionY();
+			Archive map = maps.findArchiveByName("m" + x + "_" + y);
+			Archive land = maps.findArchiveByName("l" + x + "_" + y);
+			// regions rendered without their keys are missing objects, so
+			// they are re-rendered once the keys are available
+			manifest.regions.put(region.getRegionID(), new int[]{map.getCrc(), land.getCrc(), region.isLocationsLoaded() ? 1 : 0});
+		}
+
+		return manifest;
+	}
+
+	private static MapTileManifest readTileManifest(File outDir)
+	{
+		File file = new File(outDir, TILE_MANIFEST);
+		if (!file.exists())
+		{
+			return null;
+		}
+
+		try (Reader reader = new FileReader(file))
+		{
+			return new Gson().fromJson(reader, MapTileManifest.class);
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			logger.warn("unable to read tile manifest, rendering all regions", ex);
+			return null;
+		}
+	}
+
 	private void drawMap(BufferedImage image, int drawBaseX, int drawBaseY, int z, Region region)
 	{
 		int[][] map = new int[Region.X * MAP_SCALE][Region.Y * MAP_SCALE];
@@ -894,7 +1085,7 @@ public class MapImageDumper
 	private void loadRegions(Store store) throws IOException
 	{
 		regionLoader = new RegionLoader(store);
-		regionLoader.loadRegions();
+		regionLoader.loadRegionsParallel();
 		regionLoader.calculateBounds();
 
 		logger.info("North most region: {}", regionLoader.getLowestY().getBaseY());
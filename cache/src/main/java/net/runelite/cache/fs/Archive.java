@@ -169,7 +169,11 @@ public class Archive
 
 	public void setNameHash(int nameHash)
 	{
-		this.nameHash = nameHash;
+		if (this.nameHash != nameHash)
+		{
+			this.nameHash = nameHash;
+			index.archiveNameChanged();
+		}
 	}
 
 	public int getCrc()
@@ -27,8 +27,8 @@ package net.runelite.cache.fs;
 import static com.google.common.primitives.Bytes.concat;
 import com.google.common.primitives.Ints;
 import java.io.IOException;
+import java.util.Arrays;
 import net.runelite.cache.fs.jagex.CompressionType;
-import net.runelite.cache.io.InputStream;
 import net.runelite.cache.io.OutputStream;
 import net.runelite.cache.util.BZip2;
 import net.runelite.cache.util.Crc32;
@@ -41,6 +41,14 @@ public class Container
 {
 	private static final Logger logger = LoggerFactory.getLogger(Container.class);
 
+	/**
+	 * Largest decompressed length accepted, so a corrupt length can't
+	 * allocate an arbitrarily large buffer
+	 */
+	private static final int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+	private static final ThreadLocal<byte[]> DECRYPT_BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+
 	public byte[] data;
 	public int compression; // compression
 	public int revision;
@@ -92,115 +100,183 @@ public class Container
 
 	public static Container decompress(byte[] b, int[] keys) throws IOException
 	{
-		InputStream stream = new InputStream(b);
+		if (b.length < 5)
+		{
+			throw new RuntimeException("Invalid data");
+		}
 
-		int compression = stream.readUnsignedByte();
-		int compressedLength = stream.readInt();
+		int compression = b[0] & 0xFF;
+		int compressedLength = Ints.fromBytes(b[1], b[2], b[3], b[4]);
 		if (compressedLength < 0 || compressedLength > 1000000)
 		{
 			throw new RuntimeException("Invalid data");
 		}
 
-		Crc32 crc32 = new Crc32();
-		crc32.update(b, 0, 5); // compression + length
-
-		byte[] data;
-		int revision = -1;
+		int encryptedLength;
 		switch (compression)
 		{
 			case CompressionType.NONE:
-			{
-				byte[] encryptedData = new byte[compressedLength];
-				stream.readBytes(encryptedData, 0, compressedLength);
-
-				crc32.update(encryptedData, 0, compressedLength);
-				byte[] decryptedData = decrypt(encryptedData, encryptedData.length, keys);
-
-				if (stream.remaining() >= 2)
-				{
-					revision = stream.readUnsignedShort();
-					assert revision != -1;
-				}
-
-				data = decryptedData;
-
+				encryptedLength = compressedLength;
 				break;
-			}
 			case CompressionType.BZ2:
-			{
-				byte[] encryptedData = new byte[compressedLength + 4];
-				stream.readBytes(encryptedData);
+			case CompressionType.GZ:
+				encryptedLength = compressedLength + 4; // decompressed length
+				break;
+			default:
+				throw new RuntimeException("Unknown decompression type");
+		}
 
-				crc32.update(encryptedData, 0, encryptedData.length);
-				byte[] decryptedData = decrypt(encryptedData, encryptedData.length, keys);
+		if (5 + encryptedLength > b.length)
+		{
+			throw new RuntimeException("Invalid data");
+		}
 
-				if (stream.remaining() >= 2)
-				{
-					revision = stream.readUnsignedShort();
-					assert revision != -1;
-				}
+		// crc covers the compression type, length, and encrypted data
+		Crc32 crc32 = new Crc32();
+		crc32.update(b, 0, 5 + encryptedLength);
 
-				stream = new InputStream(decryptedData);
+		int revision = -1;
+		int trailer = 5 + encryptedLength;
+		if (b.length - trailer >= 2)
+		{
+			revision = ((b[trailer] & 0xFF) << 8) | (b[trailer + 1] & 0xFF);
+		}
+
+		byte[] data;
+		if (compression == CompressionType.NONE)
+		{
+			data = Arrays.copyOfRange(b, 5, 5 + compressedLength);
+			decrypt(data, compressedLength, keys);
+		}
+		else
+		{
+			// decompress straight out of the archive data, or out of a
+			// reused per-thread buffer if it has to be decrypted first
+			byte[] src = b;
+			int off = 5;
+			if (keys != null)
+			{
+				src = getDecryptBuffer(encryptedLength);
+				System.arraycopy(b, 5, src, 0, encryptedLength);
+				decrypt(src, encryptedLength, keys);
+				off = 0;
+			}
 
-				int decompressedLength = stream.readInt();
-				data = BZip2.decompress(stream.getRemaining(), compressedLength);
+			int decompressedLength = Ints.fromBytes(src[off], src[off + 1], src[off + 2], src[off + 3]);
+			off += 4;
 
-				if (data == null)
+			// check the compression header before trusting the length, which is
+			// garbage if the keys are wrong
+			if (compression == CompressionType.BZ2)
+			{
+				if (!BZip2.isHeader(src, off, compressedLength))
 				{
-					return null;
+					throw new IOException("Invalid bzip2 header");
 				}
-
-				assert data.length == decompressedLength;
-
-				break;
 			}
-			case CompressionType.GZ:
+			else if (!GZip.isHeader(src, off, compressedLength))
 			{
-				byte[] encryptedData = new byte[compressedLength + 4];
-				stream.readBytes(encryptedData);
+				throw new IOException("Not in GZIP format");
+			}
 
-				crc32.update(encryptedData, 0, encryptedData.length);
-				byte[] decryptedData = decrypt(encryptedData, encryptedData.length, keys);
+			if (decompressedLength < 0 || decompressedLength > MAX_DECOMPRESSED_LENGTH)
+			{
+				throw new IOException("Invalid decompressed length " + decompressedLength);
+			}
 
-				if (stream.remaining() >= 2)
-				{
-					revision = stream.readUnsignedShort();
-					assert revision != -1;
-				}
+			if (compression == CompressionType.BZ2)
+			{
+				data = BZip2.decompress(src, off, compressedLength, decompressedLength);
+			}
+			else
+			{
+				data = GZip.decompress(src, off, compressedLength, decompressedLength);
+			}
+		}
 
-				stream = new InputStream(decryptedData);
+		Container container = new Container(compression, revision);
+		container.data = data;
+		container.crc = crc32.getHash();
+		return container;
+	}
 
-				int decompressedLength = stream.readInt();
-				data = GZip.decompress(stream.getRemaining(), compressedLength);
+	private static byte[] getDecryptBuffer(int size)
+	{
+		byte[] buffer = DECRYPT_BUFFER.get();
+		if (buffer.length < size)
+		{
+			buffer = new byte[Math.max(size, buffer.length * 2)];
+			DECRYPT_BUFFER.set(buffer);
+		}
+		return buffer;
+	}
 
-				if (data == null)
-				{
-					return null;
-				}
+	/**
+	 * Check if keys are correct for encrypted container data by decrypting
+	 * only the blocks covering the compression header, without
+	 * decompressing the data.
+	 *
+	 * @param b container data
+	 * @param keys xtea keys
+	 * @return whether the keys are correct, or null if this can't be
+	 * determined without decompressing the data
+	 */
+	public static Boolean checkKeys(byte[] b, int[] keys)
+	{
+		if (b.length < 5)
+		{
+			return null;
+		}
 
-				assert data.length == decompressedLength;
+		int compression = b[0] & 0xFF;
+		int compressedLength = Ints.fromBytes(b[1], b[2], b[3], b[4]);
 
+		int headerLength;
+		switch (compression)
+		{
+			case CompressionType.BZ2:
+				headerLength = 4 + 6; // decompressed length, block magic
+				break;
+			case CompressionType.GZ:
+				headerLength = 4 + 3; // decompressed length, gzip magic
 				break;
-			}
 			default:
-				throw new RuntimeException("Unknown decompression type");
+				// uncompressed data has no header to check
+				return null;
 		}
 
-		Container container = new Container(compression, revision);
-		container.data = data;
-		container.crc = crc32.getHash();
-		return container;
+		// xtea only encrypts whole blocks
+		int checkLength = (headerLength + 7) & ~7;
+		if (compressedLength < 0 || checkLength > compressedLength + 4 || 5 + checkLength > b.length)
+		{
+			return null;
+		}
+
+		byte[] header = Arrays.copyOfRange(b, 5, 5 + checkLength);
+		Xtea.decrypt(keys, header, 0, checkLength);
+
+		int decompressedLength = Ints.fromBytes(header[0], header[1], header[2], header[3]);
+		if (decompressedLength < 0)
+		{
+			return false;
+		}
+
+		return compression == CompressionType.BZ2
+			? BZip2.isHeader(header, 4, checkLength - 4)
+			: GZip.isHeader(header, 4, checkLength - 4);
 	}
 
+	/**
+	 * Decrypt data in place. The data passed in is always a copy private
+	 * to decompress().
+	 */
 	private static byte[] decrypt(byte[] data, int length, int[] keys)
 	{
-		if (keys == null)
+		if (keys != null)
 		{
-			return data;
+			Xtea.decrypt(keys, data, 0, length);
 		}
-
-		Xtea xtea = new Xtea(keys);
-		return xtea.decrypt(data, length);
+		return data;
 	}
 
 	private static byte[] encrypt(byte[] data, int length, int[] keys)
@@ -210,7 +286,9 @@ public class Container
 			return data;
 		}
 
-		Xtea xtea = new Xtea(keys);
-		return xtea.encrypt(data, length);
+		// data may be the caller's uncompressed buffer, so encrypt a copy
+		byte[] encrypted = Arrays.copyOf(data, length);
+		Xtea.encrypt(keys, encrypted, 0, length);
+		return encrypted;
 	}
 }
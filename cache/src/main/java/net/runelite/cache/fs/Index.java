@@ -25,7 +25,9 @@
 package net.runelite.cache.fs;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import net.runelite.cache.index.ArchiveData;
 import net.runelite.cache.index.FileData;
@@ -47,6 +49,8 @@ public class Index
 	private int compression; // compression method of this index's data in 255
 
 	private final List<Archive> archives = new ArrayList<>();
+	private final Map<Integer, Archive> archivesById = new HashMap<>();
+	private volatile Map<Integer, Archive> archivesByName; // built lazily, null when stale
 
 	public Index(int id)
 	{
@@ -154,32 +158,39 @@ public class Index
 	{
 		Archive archive = new Archive(this, id);
 		this.archives.add(archive);
+		archivesById.putIfAbsent(id, archive);
+		if (archivesByName != null)
+		{
+			archivesByName.putIfAbsent(archive.getNameHash(), archive);
+		}
 		return archive;
 	}
 
 	public Archive getArchive(int id)
 	{
-		for (Archive a : archives)
-		{
-			if (a.getArchiveId() == id)
-			{
-				return a;
-			}
-		}
-		return null;
+		return archivesById.get(id);
 	}
 
 	public Archive findArchiveByName(String name)
 	{
 		int hash = Djb2.hash(name);
-		for (Archive a : archives)
+		if (archivesByName == null)
 		{
-			if (a.getNameHash() == hash)
+			// archives commonly have their name set after being added,
+			// so the name index is rebuilt on first use after a change
+			Map<Integer, Archive> byName = new HashMap<>(archives.size() * 2);
+			for (Archive a : archives)
 			{
-				return a;
+				byName.putIfAbsent(a.getNameHash(), a);
 			}
+			archivesByName = byName;
 		}
-		return null;
+		return archivesByName.get(hash);
+	}
+
+	void archiveNameChanged()
+	{
+		archivesByName = null;
 	}
 
 	public IndexData toIndexData()
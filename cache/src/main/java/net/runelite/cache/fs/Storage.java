@@ -40,4 +40,13 @@ public interface Storage extends AutoCloseable
 	byte[] loadArchive(Archive archive) throws IOException;
 
 	void saveArchive(Archive archive, byte[] data) throws IOException;
+
+	/**
+	 * Whether archives may be loaded and saved from multiple threads at once
+	 * without external synchronization
+	 */
+	default boolean isThreadSafe()
+	{
+		return false;
+	}
 }
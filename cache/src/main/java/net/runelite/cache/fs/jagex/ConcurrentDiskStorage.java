@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.fs.jagex;
+
+import com.google.common.util.concurrent.Striped;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import net.runelite.cache.fs.Archive;
+import net.runelite.cache.fs.Index;
+import net.runelite.cache.fs.Storage;
+import net.runelite.cache.fs.Store;
+import net.runelite.cache.util.Crc32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread safe {@link Storage} for the Jagex disk cache format. Reads use
+ * positional reads on shared file channels, so readers never block each
+ * other or writers. Writers reserve their sectors up front and write them
+ * with a single positional write, and only writers to the same archive
+ * contend on a lock.
+ */
+public class ConcurrentDiskStorage implements Storage
+{
+	private static final Logger logger = LoggerFactory.getLogger(ConcurrentDiskStorage.class);
+
+	private static final String MAIN_FILE_CACHE_DAT = "main_file_cache.dat2";
+	private static final String MAIN_FILE_CACHE_IDX = "main_file_cache.idx";
+
+	private static final int SECTOR_SIZE = DataFile.SECTOR_SIZE;
+	private static final int INDEX_ENTRY_LEN = 6;
+	private static final int META_INDEX = 255;
+	private static final int READ_AHEAD_SECTORS = 64;
+	private static final int LOCK_STRIPES = 64;
+
+	private final File folder;
+	private final FileChannel data;
+	private final AtomicReferenceArray<FileChannel> indexFiles = new AtomicReferenceArray<>(META_INDEX + 1);
+	private final AtomicLong nextSector;
+	private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+	private final ThreadLocal<ByteBuffer> readBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_AHEAD_SECTORS * SECTOR_SIZE));
+
+	public ConcurrentDiskStorage(File folder) throws IOException
+	{
+		this.folder = folder;
+		this.data = open(new File(folder, MAIN_FILE_CACHE_DAT));
+		this.nextSector = new AtomicLong(Math.max(1L, (data.size() + SECTOR_SIZE - 1) / SECTOR_SIZE));
+		getIndexFile(META_INDEX);
+	}
+
+	private static FileChannel open(File file) throws IOException
+	{
+		return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	@Override
+	public void init(Store store) throws IOException
+	{
+		int indexCount = (int) (getIndexFile(META_INDEX).size() / INDEX_ENTRY_LEN);
+		for (int i = 0; i < indexCount; ++i)
+		{
+			store.addIndex(i);
+			getIndexFile(i);
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		data.close();
+		for (int i = 0; i < indexFiles.length(); ++i)
+		{
+			FileChannel indexFile = indexFiles.get(i);
+			if (indexFile != null)
+			{
+				indexFile.close();
+			}
+		}
+	}
+
+	@Override
+	public boolean isThreadSafe()
+	{
+		return true;
+	}
+
+	private FileChannel getIndexFile(int i) throws IOException
+	{
+		FileChannel indexFile = indexFiles.get(i);
+		if (indexFile != null)
+		{
+			return indexFile;
+		}
+
+		synchronized (indexFiles)
+		{
+			indexFile = indexFiles.get(i);
+			if (indexFile == null)
+			{
+				indexFile = open(new File(folder, MAIN_FILE_CACHE_IDX + i));
+				indexFiles.set(i, indexFile);
+			}
+			return indexFile;
+		}
+	}
+
+	@Override
+	public void load(Store store) throws IOException
+	{
+		for (Index index : store.getIndexes())
+		{
+			logger.trace("Loading index {}", index.getId());
+
+			byte[] indexData = readIndex(index.getId());
+			DiskStorage.loadIndex(index, indexData);
+		}
+	}
+
+	public byte[] readIndex(int indexId) throws IOException
+	{
+		return read(META_INDEX, indexId);
+	}
+
+	@Override
+	public byte[] loadArchive(Archive archive) throws IOException
+	{
+		Index index = archive.getIndex();
+		byte[] archiveData = read(index.getId(), archive.getArchiveId());
+		if (archiveData == null)
+		{
+			logger.debug("can't read archive " + archive.getArchiveId() + " from index " + index.getId());
+		}
+		return archiveData;
+	}
+
+	private byte[] read(int indexId, int archiveId) throws IOException
+	{
+		ByteBuffer buffer = readBuffer.get();
+
+		buffer.clear();
+		buffer.limit(INDEX_ENTRY_LEN);
+		if (readFully(getIndexFile(indexId), buffer, (long) archiveId * INDEX_ENTRY_LEN) != INDEX_ENTRY_LEN)
+		{
+			logger.debug("short read for id {} on index {}", archiveId, indexId);
+			return null;
+		}
+
+		int length = readMedium(buffer, 0);
+		int sector = readMedium(buffer, 3);
+		if (length <= 0 || sector <= 0)
+		{
+			logger.debug("invalid length or sector {}/{}", length, sector);
+			return null;
+		}
+
+		return read(buffer, indexId, archiveId, sector, length);
+	}
+
+	private byte[] read(ByteBuffer buffer, int indexId, int archiveId, int sector, int size) throws IOException
+	{
+		long sectors = data.size() / SECTOR_SIZE;
+		if (sector > sectors)
+		{
+			logger.warn("bad read, dat length {}, requested sector {}", data.size(), sector);
+			return null;
+		}
+
+		int headerSize = archiveId > 0xFFFF ? 10 : 8;
+		int blockSize = SECTOR_SIZE - headerSize;
+		byte[] out = new byte[size];
+
+		// sectors are usually contiguous, so read ahead as many as are needed
+		int bufferSector = -1;
+		int bufferLength = 0;
+
+		for (int part = 0, readBytesCount = 0, nextSector;
+			size > readBytesCount;
+			sector = nextSector)
+		{
+			if (sector == 0)
+			{
+				logger.warn("Unexpected end of file");
+				return null;
+			}
+
+			int dataBlockSize = Math.min(size - readBytesCount, blockSize);
+
+			int offset = 0;
+			boolean buffered = bufferSector != -1 && sector >= bufferSector && sector - bufferSector < READ_AHEAD_SECTORS;
+			if (buffered)
+			{
+				offset = (sector - bufferSector) * SECTOR_SIZE;
+				buffered = offset + headerSize + dataBlockSize <= bufferLength;
+			}
+
+			if (!buffered)
+			{
+				int remainingSectors = (size - readBytesCount + blockSize - 1) / blockSize;
+				buffer.clear();
+				buffer.limit(Math.min(remainingSectors, READ_AHEAD_SECTORS) * SECTOR_SIZE);
+				bufferLength = readFully(data, buffer, (long) sector * SECTOR_SIZE);
+				bufferSector = sector;
+				offset = 0;
+
+				if (headerSize + dataBlockSize > bufferLength)
+				{
+					logger.warn("Short read when reading file data for {}/{}", indexId, archiveId);
+					return null;
+				}
+			}
+
+			int currentArchive;
+			int currentPart;
+			int currentIndex;
+			if (headerSize == 10)
+			{
+				currentArchive = buffer.getInt(offset);
+				currentPart = buffer.getShort(offset + 4) & 0xFFFF;
+				nextSector = readMedium(buffer, offset + 6);
+				currentIndex = buffer.get(offset + 9) & 0xFF;
+			}
+			else
+			{
+				currentArchive = buffer.getShort(offset) & 0xFFFF;
+				currentPart = buffer.getShort(offset + 2) & 0xFFFF;
+				nextSector = readMedium(buffer, offset + 4);
+				currentIndex = buffer.get(offset + 7) & 0xFF;
+			}
+
+			if (archiveId != currentArchive || currentPart != part || indexId != currentIndex)
+			{
+				logger.warn("data mismatch {} != {}, {} != {}, {} != {}",
+					archiveId, currentArchive,
+					part, currentPart,
+					indexId, currentIndex);
+				return null;
+			}
+
+			if (sectors < (long) nextSector)
+			{
+				logger.warn("Invalid next sector");
+				return null;
+			}
+
+			buffer.limit(offset + headerSize + dataBlockSize);
+			buffer.position(offset + headerSize);
+			buffer.get(out, readBytesCount, dataBlockSize);
+			buffer.limit(buffer.capacity());
+			readBytesCount += dataBlockSize;
+
+			++part;
+		}
+
+		return out;
+	}
+
+	private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		int read = 0;
+		while (buffer.hasRemaining())
+		{
+			int i = channel.read(buffer, position + read);
+			if (i < 0)
+			{
+				break;
+			}
+			read += i;
+		}
+		return read;
+	}
+
+	private static int readMedium(ByteBuffer buffer, int offset)
+	{
+		return ((buffer.get(offset) & 0xFF) << 16)
+			| ((buffer.get(offset + 1) & 0xFF) << 8)
+			| (buffer.get(offset + 2) & 0xFF);
+	}
+
+	@Override
+	public void save(Store store) throws IOException
+	{
+		logger.debug("Saving store");
+
+		for (Index index : store.getIndexes())
+		{
+			byte[] compressedData = DiskStorage.compressIndex(index);
+			write(META_INDEX, index.getId(), compressedData);
+
+			Crc32 crc = new Crc32();
+			crc.update(compressedData, 0, compressedData.length);
+			index.setCrc(crc.getHash());
+		}
+	}
+
+	@Override
+	public void saveArchive(Archive a, byte[] archiveData) throws IOException
+	{
+		Index index = a.getIndex();
+		int sector = write(index.getId(), a.getArchiveId(), archiveData);
+
+		a.setCrc(DiskStorage.archiveCrc(archiveData));
+
+		logger.trace("Saved archive {}/{} at sector {}, compressed length {}",
+			index.getId(), a.getArchiveId(), sector, archiveData.length);
+	}
+
+	private int write(int indexId, int archiveId, byte[] compressedData) throws IOException
+	{
+		boolean extended = archiveId > 0xFFFF;
+		int headerSize = extended ? 10 : 8;
+		int blockSize = SECTOR_SIZE - headerSize;
+		int length = compressedData.length;
+		int sectorCount = (length + blockSize - 1) / blockSize;
+
+		// sectors are reserved up front so concurrent writers never overlap
+		int startSector = (int) nextSector.getAndAdd(sectorCount);
+
+		ByteBuffer buffer = ByteBuffer.allocate(sectorCount * headerSize + length);
+		for (int part = 0; part < sectorCount; ++part)
+		{
+			int sector = startSector + part;
+			int next = part + 1 < sectorCount ? sector + 1 : 0;
+			int offset = part * blockSize;
+			int dataToWrite = Math.min(length - offset, blockSize);
+
+			if (extended)
+			{
+				buffer.putInt(archiveId);
+			}
+			else
+			{
+				buffer.putShort((short) archiveId);
+			}
+			buffer.putShort((short) part);
+			buffer.put((byte) (next >> 16));
+			buffer.put((byte) (next >> 8));
+			buffer.put((byte) next);
+			buffer.put((byte) indexId);
+			buffer.put(compressedData, offset, dataToWrite);
+		}
+		buffer.flip();
+
+		Lock lock = locks.get(((long) indexId << 32) | archiveId);
+		lock.lock();
+		try
+		{
+			// data must be written before the index entry that points to it
+			writeFully(data, buffer, (long) startSector * SECTOR_SIZE);
+
+			ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_LEN);
+			entry.put((byte) (length >> 16));
+			entry.put((byte) (length >> 8));
+			entry.put((byte) length);
+			entry.put((byte) (startSector >> 16));
+			entry.put((byte) (startSector >> 8));
+			entry.put((byte) startSector);
+			entry.flip();
+			writeFully(getIndexFile(indexId), entry, (long) archiveId * INDEX_ENTRY_LEN);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		return startSector;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			position += channel.write(buffer, position);
+		}
+	}
+}
@@ -37,9 +37,9 @@ public class DataFile implements Closeable
 {
 	private static final Logger logger = LoggerFactory.getLogger(DataFile.class);
 
-	private static final int SECTOR_SIZE = 520;
+	static final int SECTOR_SIZE = 520;
 
-	private final RandomAccessFile dat;
+	protected final RandomAccessFile dat;
 
 	public DataFile(File file) throws FileNotFoundException
 	{
@@ -55,10 +55,21 @@ public class DiskStorage implements Storage
 	private final List<IndexFile> indexFiles = new ArrayList<>();
 
 	public DiskStorage(File folder) throws IOException
+	{
+		this(folder, false);
+	}
+
+	/**
+	 * @param folder cache folder
+	 * @param mapped whether to access the data file through a memory mapping
+	 * @throws IOException
+	 */
+	public DiskStorage(File folder, boolean mapped) throws IOException
 	{
 		this.folder = folder;
 
-		this.data = new DataFile(new File(folder, MAIN_FILE_CACHE_DAT));
+		File dataFile = new File(folder, MAIN_FILE_CACHE_DAT);
+		this.data = mapped ? new MappedDataFile(dataFile) : new DataFile(dataFile);
 		this.index255 = new IndexFile(255, new File(folder, MAIN_FILE_CACHE_IDX + "255"));
 	}
 
@@ -121,6 +132,11 @@ public class DiskStorage implements Storage
 		logger.trace("Loading index {}", index.getId());
 
 		byte[] indexData = readIndex(index.getId());
+		loadIndex(index, indexData);
+	}
+
+	static void loadIndex(Index index, byte[] indexData) throws IOException
+	{
 		Container res = Container.decompress(indexData, null);
 		byte[] data = res.data;
 
@@ -184,12 +200,7 @@ public class DiskStorage implements Storage
 
 	private void saveIndex(Index index) throws IOException
 	{
-		IndexData indexData = index.toIndexData();
-		byte[] data = indexData.writeIndexData();
-
-		Container container = new Container(index.getCompression(), -1); // index data revision is always -1
-		container.compress(data, null);
-		byte[] compressedData = container.data;
+		byte[] compressedData = compressIndex(index);
 		DataFileWriteResult res = this.data.write(index255.getIndexFileId(), index.getId(), compressedData);
 
 		index255.write(new IndexEntry(index255, index.getId(), res.sector, res.compressedLength));
@@ -199,6 +210,16 @@ public class DiskStorage implements Storage
 		index.setCrc(crc.getHash());
 	}
 
+	static byte[] compressIndex(Index index) throws IOException
+	{
+		IndexData indexData = index.toIndexData();
+		byte[] data = indexData.writeIndexData();
+
+		Container container = new Container(index.getCompression(), -1); // index data revision is always -1
+		container.compress(data, null);
+		return container.data;
+	}
+
 	@Override
 	public void saveArchive(Archive a, byte[] archiveData) throws IOException
 	{
@@ -209,6 +230,14 @@ public class DiskStorage implements Storage
 		DataFileWriteResult res = data.write(index.getId(), a.getArchiveId(), archiveData);
 		indexFile.write(new IndexEntry(indexFile, a.getArchiveId(), res.sector, res.compressedLength));
 
+		a.setCrc(archiveCrc(archiveData));
+
+		logger.trace("Saved archive {}/{} at sector {}, compressed length {}",
+			index.getId(), a.getArchiveId(), res.sector, res.compressedLength);
+	}
+
+	static int archiveCrc(byte[] archiveData)
+	{
 		byte compression = archiveData[0];
 		int compressedSize = Ints.fromBytes(archiveData[1], archiveData[2],
 			archiveData[3], archiveData[4]);
@@ -221,9 +250,6 @@ public class DiskStorage implements Storage
 
 		Crc32 crc = new Crc32();
 		crc.update(archiveData, 0, length);
-		a.setCrc(crc.getHash());
-
-		logger.trace("Saved archive {}/{} at sector {}, compressed length {}",
-			index.getId(), a.getArchiveId(), res.sector, res.compressedLength);
+		return crc.getHash();
 	}
 }
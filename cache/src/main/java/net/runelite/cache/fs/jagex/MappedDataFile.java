@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.fs.jagex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DataFile} which reads and writes sectors through a single memory
+ * mapping of the data file instead of seeking the underlying file for every
+ * sector. The mapping is grown geometrically as new sectors are appended, and
+ * the file is truncated back to its logical length when closed.
+ */
+public class MappedDataFile extends DataFile
+{
+	private static final Logger logger = LoggerFactory.getLogger(MappedDataFile.class);
+
+	private static final long MAX_MAPPING_SIZE = (Integer.MAX_VALUE / SECTOR_SIZE) * (long) SECTOR_SIZE;
+	private static final long MIN_GROWTH = SECTOR_SIZE * 2048L;
+
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long length; // logical length of the data file, the mapping may extend past this
+
+	public MappedDataFile(File file) throws IOException
+	{
+		super(file);
+		this.channel = dat.getChannel();
+		this.length = channel.size();
+		map(length);
+	}
+
+	private void map(long size) throws IOException
+	{
+		if (size > MAX_MAPPING_SIZE)
+		{
+			throw new IOException("data file is too large to map: " + size);
+		}
+
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	private void ensureCapacity(long required) throws IOException
+	{
+		long capacity = buffer.capacity();
+		if (required <= capacity)
+		{
+			return;
+		}
+
+		long newCapacity = Math.max(required, capacity + Math.max(MIN_GROWTH, capacity >> 1));
+		newCapacity = (newCapacity + SECTOR_SIZE - 1) / SECTOR_SIZE * SECTOR_SIZE;
+		map(Math.min(newCapacity, Math.max(required, MAX_MAPPING_SIZE)));
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (buffer == null)
+		{
+			return;
+		}
+
+		buffer.force();
+		buffer = null;
+
+		try
+		{
+			// drop the unused tail of the mapping so sector allocation is unaffected on reopen
+			if (channel.size() > length)
+			{
+				channel.truncate(length);
+			}
+		}
+		catch (IOException ex)
+		{
+			logger.warn("unable to truncate data file to {} bytes", length, ex);
+		}
+
+		super.close();
+	}
+
+	@Override
+	public void clear() throws IOException
+	{
+		buffer = null;
+		super.clear();
+		length = 0L;
+		map(0L);
+	}
+
+	@Override
+	public byte[] read(int indexId, int archiveId, int sector, int size) throws IOException
+	{
+		byte[] data = new byte[size];
+		if (!read(indexId, archiveId, sector, size, data))
+		{
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * Read an archive without copying it out of the mapping, if possible.
+	 * Archives which fit within a single sector are returned as a read-only
+	 * slice of the mapping, others are reassembled into a new buffer.
+	 *
+	 * @param indexId expected index of archive of contents being read
+	 * @param archiveId expected archive of contents being read
+	 * @param sector sector to start reading at
+	 * @param size size of file
+	 * @return the archive contents, or null if the sector chain is invalid
+	 * @throws IOException
+	 */
+	public ByteBuffer readSlice(int indexId, int archiveId, int sector, int size) throws IOException
+	{
+		int headerSize = archiveId > 0xFFFF ? 10 : 8;
+		if (size > SECTOR_SIZE - headerSize)
+		{
+			byte[] data = read(indexId, archiveId, sector, size);
+			return data != null ? ByteBuffer.wrap(data) : null;
+		}
+
+		ByteBuffer view = buffer.duplicate();
+		if (readHeader(view, indexId, archiveId, sector, 0, size) < 0)
+		{
+			return null;
+		}
+
+		int offset = sector * SECTOR_SIZE + headerSize;
+		view.limit(offset + size);
+		view.position(offset);
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	private boolean read(int indexId, int archiveId, int sector, int size, byte[] dest)
+	{
+		if (sector <= 0 || length / SECTOR_SIZE < (long) sector)
+		{
+			logger.warn("bad read, dat length {}, requested sector {}", length, sector);
+			return false;
+		}
+
+		int headerSize = archiveId > 0xFFFF ? 10 : 8;
+		ByteBuffer view = buffer.duplicate();
+
+		for (int part = 0, readBytesCount = 0, nextSector;
+			size > readBytesCount;
+			sector = nextSector)
+		{
+			if (sector == 0)
+			{
+				logger.warn("Unexpected end of file");
+				return false;
+			}
+
+			int dataBlockSize = Math.min(size - readBytesCount, SECTOR_SIZE - headerSize);
+
+			nextSector = readHeader(view, indexId, archiveId, sector, part, dataBlockSize);
+			if (nextSector < 0)
+			{
+				return false;
+			}
+
+			view.position(sector * SECTOR_SIZE + headerSize);
+			view.get(dest, readBytesCount, dataBlockSize);
+			readBytesCount += dataBlockSize;
+
+			++part;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Validate the header of a sector in place
+	 *
+	 * @return the next sector in the chain, or -1 if the header is invalid
+	 */
+	private int readHeader(ByteBuffer view, int indexId, int archiveId, int sector, int part, int dataBlockSize)
+	{
+		int offset = sector * SECTOR_SIZE;
+		int currentArchive;
+		int currentPart;
+		int nextSector;
+		int currentIndex;
+
+		if (archiveId > 0xFFFF)
+		{
+			if (offset + 10 + dataBlockSize > length)
+			{
+				logger.warn("Short read when reading file data for {}/{}", indexId, archiveId);
+				return -1;
+			}
+
+			currentArchive = view.getInt(offset);
+			currentPart = view.getShort(offset + 4) & 0xFFFF;
+			nextSector = readMedium(view, offset + 6);
+			currentIndex = view.get(offset + 9) & 0xFF;
+		}
+		else
+		{
+			if (offset + 8 + dataBlockSize > length)
+			{
+				logger.warn("short read");
+				return -1;
+			}
+
+			currentArchive = view.getShort(offset) & 0xFFFF;
+			currentPart = view.getShort(offset + 2) & 0xFFFF;
+			nextSector = readMedium(view, offset + 4);
+			currentIndex = view.get(offset + 7) & 0xFF;
+		}
+
+		if (archiveId != currentArchive || currentPart != part || indexId != currentIndex)
+		{
+			logger.warn("data mismatch {} != {}, {} != {}, {} != {}",
+				archiveId, currentArchive,
+				part, currentPart,
+				indexId, currentIndex);
+			return -1;
+		}
+
+		if (length / SECTOR_SIZE < (long) nextSector)
+		{
+			logger.warn("Invalid next sector");
+			return -1;
+		}
+
+		return nextSector;
+	}
+
+	private static int readMedium(ByteBuffer view, int offset)
+	{
+		return ((view.get(offset) & 0xFF) << 16)
+			| ((view.get(offset + 1) & 0xFF) << 8)
+			| (view.get(offset + 2) & 0xFF);
+	}
+
+	@Override
+	public DataFileWriteResult write(int indexId, int archiveId, byte[] compressedData) throws IOException
+	{
+		boolean extended = archiveId > 0xFFFF;
+		int headerSize = extended ? 10 : 8;
+		int blockSize = SECTOR_SIZE - headerSize;
+
+		int sector = (int) ((length + (long) (SECTOR_SIZE - 1)) / (long) SECTOR_SIZE);
+		if (sector == 0)
+		{
+			sector = 1;
+		}
+		int startSector = sector;
+
+		for (int part = 0, written = 0; written < compressedData.length; ++part)
+		{
+			int dataToWrite = Math.min(compressedData.length - written, blockSize);
+			int nextSector = 0;
+
+			if (compressedData.length - written > blockSize)
+			{
+				nextSector = (int) ((length + (long) (SECTOR_SIZE - 1)) / (long) SECTOR_SIZE);
+				if (nextSector == 0)
+				{
+					++nextSector;
+				}
+
+				if (nextSector == sector)
+				{
+					++nextSector;
+				}
+			}
+
+			long offset = (long) sector * SECTOR_SIZE;
+			ensureCapacity(offset + headerSize + dataToWrite);
+
+			int pos = (int) offset;
+			if (extended)
+			{
+				buffer.putInt(pos, archiveId);
+				buffer.putShort(pos + 4, (short) part);
+				pos += 6;
+			}
+			else
+			{
+				buffer.putShort(pos, (short) archiveId);
+				buffer.putShort(pos + 2, (short) part);
+				pos += 4;
+			}
+			buffer.put(pos, (byte) (nextSector >> 16));
+			buffer.put(pos + 1, (byte) (nextSector >> 8));
+			buffer.put(pos + 2, (byte) nextSector);
+			buffer.put(pos + 3, (byte) indexId);
+
+			ByteBuffer view = buffer.duplicate();
+			view.position((int) offset + headerSize);
+			view.put(compressedData, written, dataToWrite);
+
+			written += dataToWrite;
+			length = Math.max(length, offset + headerSize + dataToWrite);
+			sector = nextSector;
+		}
+
+		DataFileWriteResult res = new DataFileWriteResult();
+		res.sector = startSector;
+		res.compressedLength = compressedData.length;
+		return res;
+	}
+}
@@ -49,6 +49,7 @@ public class Region
 	private final byte[][][] underlayIds = new byte[Z][X][Y];
 
 	private final List<Location> locations = new ArrayList<>();
+	private boolean locationsLoaded;
 
 	public Region(int id)
 	{
@@ -125,6 +126,8 @@ public class Region
 					loc.getPosition().getZ()));
 			locations.add(newLoc);
 		}
+
+		locationsLoaded = true;
 	}
 
 	public int getRegionID()
@@ -177,6 +180,15 @@ public class Region
 		return locations;
 	}
 
+	/**
+	 * Check if the locations of this region have been loaded. Locations
+	 * can't be loaded without the region's xtea keys.
+	 */
+	public boolean isLocationsLoaded()
+	{
+		return locationsLoaded;
+	}
+
 	public int getRegionX()
 	{
 		return baseX >> 6;
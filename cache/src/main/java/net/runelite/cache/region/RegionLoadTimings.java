@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.region;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative time spent in each phase of loading regions, summed across
+ * all loading threads
+ */
+public class RegionLoadTimings
+{
+	private final LongAdder read = new LongAdder();
+	private final LongAdder decompress = new LongAdder();
+	private final LongAdder parse = new LongAdder();
+
+	void addRead(long nanos)
+	{
+		read.add(nanos);
+	}
+
+	void addDecompress(long nanos)
+	{
+		decompress.add(nanos);
+	}
+
+	void addParse(long nanos)
+	{
+		parse.add(nanos);
+	}
+
+	public void reset()
+	{
+		read.reset();
+		decompress.reset();
+		parse.reset();
+	}
+
+	/**
+	 * @return time spent reading archives from storage, in milliseconds
+	 */
+	public long getReadMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(read.sum());
+	}
+
+	/**
+	 * @return time spent decrypting and decompressing archives, in milliseconds
+	 */
+	public long getDecompressMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(decompress.sum());
+	}
+
+	/**
+	 * @return time spent parsing map and location definitions, in milliseconds
+	 */
+	public long getParseMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(parse.sum());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "read " + getReadMillis() + "ms, decrypt/decompress " + getDecompressMillis()
+			+ "ms, parse " + getParseMillis() + "ms";
+	}
+}
@@ -25,9 +25,15 @@
 package net.runelite.cache.region;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import net.runelite.cache.IndexType;
 import net.runelite.cache.definitions.LocationsDefinition;
 import net.runelite.cache.definitions.MapDefinition;
@@ -46,12 +52,14 @@ public class RegionLoader
 	private static final Logger logger = LoggerFactory.getLogger(RegionLoader.class);
 
 	private static final int MAX_REGION = 32768;
+	private static final int REGIONS_PER_TASK = 256;
 
 	private final Store store;
 	private final Index index;
 	private final XteaKeyManager keyManager;
 
-	private final Map<Integer, Region> regions = new HashMap<>();
+	private final Map<Integer, Region> regions = new ConcurrentHashMap<>();
+	private final RegionLoadTimings timings = new RegionLoadTimings();
 	private Region lowestX = null, lowestY = null;
 	private Region highestX = null, highestY = null;
 
@@ -65,7 +73,83 @@ public class RegionLoader
 
 	public void loadRegions() throws IOException
 	{
-		for (int i = 0; i < MAX_REGION; ++i)
+		long start = System.nanoTime();
+
+		loadRegions(0, MAX_REGION);
+
+		logger.info("Loaded {} regions in {}ms ({})", regions.size(),
+			(System.nanoTime() - start) / 1_000_000L, timings);
+	}
+
+	/**
+	 * Load regions on the common fork-join pool
+	 *
+	 * @throws IOException
+	 */
+	public void loadRegionsParallel() throws IOException
+	{
+		loadRegions(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Load regions by splitting the region space into tasks run on the
+	 * given executor. Archives are read from storage one at a time unless the
+	 * storage is thread safe, while decryption, decompression, and parsing run
+	 * concurrently.
+	 *
+	 * @param executor executor to load regions on
+	 * @throws IOException
+	 */
+	public void loadRegions(ExecutorService executor) throws IOException
+	{
+		long start = System.nanoTime();
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < MAX_REGION; i += REGIONS_PER_TASK)
+		{
+			final int from = i;
+			futures.add(executor.submit(() ->
+			{
+				loadRegions(from, from + REGIONS_PER_TASK);
+				return null;
+			}));
+		}
+
+		try
+		{
+			for (Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			futures.forEach(f -> f.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted loading regions", ex);
+		}
+		catch (ExecutionException ex)
+		{
+			futures.forEach(f -> f.cancel(true));
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+
+		logger.info("Loaded {} regions in {}ms ({})", regions.size(),
+			(System.nanoTime() - start) / 1_000_000L, timings);
+	}
+
+	private void loadRegions(int from, int to) throws IOException
+	{
+		for (int i = from; i < to; ++i)
 		{
 			Region region = this.loadRegionFromArchive(i);
 			if (region != null)
@@ -80,7 +164,6 @@ public class RegionLoader
 		int x = i >> 8;
 		int y = i & 0xFF;
 
-		Storage storage = store.getStorage();
 		Archive map = index.findArchiveByName("m" + x + "_" + y);
 		Archive land = index.findArchiveByName("l" + x + "_" + y);
 
@@ -91,21 +174,26 @@ public class RegionLoader
 			return null;
 		}
 
-		byte[] data = map.decompress(storage.loadArchive(map));
+		byte[] data = decompress(map, readArchive(map), null);
 
+		long start = System.nanoTime();
 		MapDefinition mapDef = new MapLoader().load(x, y, data);
 
 		Region region = new Region(i);
 		region.loadTerrain(mapDef);
+		timings.addParse(System.nanoTime() - start);
 
 		int[] keys = keyManager.getKeys(i);
 		if (keys != null)
 		{
 			try
 			{
-				data = land.decompress(storage.loadArchive(land), keys);
+				data = decompress(land, readArchive(land), keys);
+
+				start = System.nanoTime();
 				LocationsDefinition locDef = new LocationsLoader().load(x, y, data);
 				region.loadLocations(locDef);
+				timings.addParse(System.nanoTime() - start);
 			}
 			catch (IOException ex)
 			{
@@ -116,6 +204,42 @@ public class RegionLoader
 		return region;
 	}
 
+	private byte[] readArchive(Archive archive) throws IOException
+	{
+		Storage storage = store.getStorage();
+		long start = System.nanoTime();
+		try
+		{
+			if (storage.isThreadSafe())
+			{
+				return storage.loadArchive(archive);
+			}
+
+			// storage implementations are not required to be thread safe
+			synchronized (storage)
+			{
+				return storage.loadArchive(archive);
+			}
+		}
+		finally
+		{
+			timings.addRead(System.nanoTime() - start);
+		}
+	}
+
+	private byte[] decompress(Archive archive, byte[] data, int[] keys) throws IOException
+	{
+		long start = System.nanoTime();
+		try
+		{
+			return archive.decompress(data, keys);
+		}
+		finally
+		{
+			timings.addDecompress(System.nanoTime() - start);
+		}
+	}
+
 	public void calculateBounds()
 	{
 		for (Region region : regions.values())
@@ -142,6 +266,11 @@ public class RegionLoader
 		}
 	}
 
+	public RegionLoadTimings getTimings()
+	{
+		return timings;
+	}
+
 	public Collection<Region> getRegions()
 	{
 		return regions.values();
@@ -29,6 +29,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.util.Arrays;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
@@ -47,6 +48,16 @@ public class BZip2
 		'1'       // block size
 	};
 
+	private static final byte[] BLOCK_MAGIC = new byte[]
+	{
+		0x31, 0x41, 0x59, 0x26, 0x53, 0x59 // pi
+	};
+
+	private static final byte[] EOS_MAGIC = new byte[]
+	{
+		0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90 // sqrt(pi)
+	};
+
 	public static byte[] compress(byte[] bytes) throws IOException
 	{
 		InputStream is = new ByteArrayInputStream(bytes);
@@ -83,4 +94,74 @@ public class BZip2
 
 		return os.toByteArray();
 	}
+
+	/**
+	 * Decompress headerless bzip2 data of a known decompressed size. The
+	 * output buffer starts from a guess bounded by the compressed size, and
+	 * only grows as far as the data actually decompresses.
+	 *
+	 * @param bytes buffer containing the bzip2 data, without the file header
+	 * @param off offset of the bzip2 data
+	 * @param len length of the bzip2 data
+	 * @param length expected decompressed size
+	 * @return the decompressed data
+	 * @throws IOException
+	 */
+	public static byte[] decompress(byte[] bytes, int off, int len, int length) throws IOException
+	{
+		InputStream in = new SequenceInputStream(new ByteArrayInputStream(BZIP_HEADER),
+			new ByteArrayInputStream(bytes, off, len));
+
+		byte[] dest = new byte[(int) Math.min(length, Math.max(4096L, len * 8L))];
+		int read = 0;
+		try (InputStream is = new BZip2CompressorInputStream(in))
+		{
+			while (read < length)
+			{
+				if (read == dest.length)
+				{
+					dest = Arrays.copyOf(dest, (int) Math.min(dest.length * 2L, length));
+				}
+
+				int n = is.read(dest, read, dest.length - read);
+				if (n < 0)
+				{
+					break;
+				}
+				read += n;
+			}
+		}
+
+		if (read != length)
+		{
+			throw new IOException("short read, expected " + length + " bytes but got " + read);
+		}
+
+		return dest;
+	}
+
+	/**
+	 * Check if headerless bzip2 data starts with a block or end of stream marker
+	 */
+	public static boolean isHeader(byte[] bytes, int off, int len)
+	{
+		if (len < BLOCK_MAGIC.length)
+		{
+			return false;
+		}
+
+		return startsWith(bytes, off, BLOCK_MAGIC) || startsWith(bytes, off, EOS_MAGIC);
+	}
+
+	private static boolean startsWith(byte[] bytes, int off, byte[] magic)
+	{
+		for (int i = 0; i < magic.length; ++i)
+		{
+			if (bytes[off + i] != magic[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -30,8 +30,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 import org.apache.commons.compress.utils.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +44,13 @@ public class GZip
 {
 	private static final Logger logger = LoggerFactory.getLogger(GZip.class);
 
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
 	public static byte[] compress(byte[] bytes) throws IOException
 	{
 		InputStream is = new ByteArrayInputStream(bytes);
@@ -64,4 +75,171 @@ public class GZip
 
 		return os.toByteArray();
 	}
+
+	/**
+	 * Inflate gzip data using an inflater reused by the calling thread. The
+	 * output buffer starts from a guess bounded by the compressed size, and
+	 * only grows as far as the data actually inflates. The crc and size in
+	 * the gzip trailer are verified.
+	 *
+	 * @param bytes buffer containing gzip data
+	 * @param off offset of the gzip data
+	 * @param len length of the gzip data
+	 * @param length expected decompressed size
+	 * @return the decompressed data
+	 * @throws IOException
+	 */
+	public static byte[] decompress(byte[] bytes, int off, int len, int length) throws IOException
+	{
+		int end = off + len;
+		int pos = skipHeader(bytes, off, end);
+
+		Inflater inflater = INFLATER.get();
+		inflater.reset();
+		inflater.setInput(bytes, pos, end - pos);
+
+		byte[] dest = new byte[initialLength(len, length)];
+		int read = 0;
+		try
+		{
+			while (read < length)
+			{
+				if (read == dest.length)
+				{
+					dest = Arrays.copyOf(dest, (int) Math.min(dest.length * 2L, length));
+				}
+
+				int n = inflater.inflate(dest, read, dest.length - read);
+				if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+				{
+					break;
+				}
+				read += n;
+			}
+
+			// consume the end of the deflate stream, which must not
+			// produce any more data
+			byte[] extra = new byte[1];
+			while (read == length && !inflater.finished())
+			{
+				if (inflater.inflate(extra) != 0)
+				{
+					throw new IOException("gzip data is longer than " + length + " bytes");
+				}
+				if (inflater.needsInput() || inflater.needsDictionary())
+				{
+					break;
+				}
+			}
+		}
+		catch (DataFormatException ex)
+		{
+			throw new IOException(ex);
+		}
+
+		if (read != length)
+		{
+			throw new IOException("short inflate, expected " + length + " bytes but got " + read);
+		}
+
+		if (!inflater.finished())
+		{
+			throw new IOException("Truncated GZIP data");
+		}
+
+		// the trailer is the crc32 and size of the uncompressed data
+		int remaining = inflater.getRemaining();
+		if (remaining < 8)
+		{
+			throw new IOException("Truncated GZIP trailer");
+		}
+
+		int trailer = end - remaining;
+		CRC32 crc32 = new CRC32();
+		crc32.update(dest, 0, length);
+
+		int crc = readIntLE(bytes, trailer);
+		if (crc != (int) crc32.getValue())
+		{
+			throw new IOException("gzip crc mismatch");
+		}
+
+		int size = readIntLE(bytes, trailer + 4);
+		if (size != length)
+		{
+			throw new IOException("gzip size mismatch, expected " + length + " but was " + size);
+		}
+
+		return dest;
+	}
+
+	private static int initialLength(int compressedLength, int length)
+	{
+		return (int) Math.min(length, Math.max(4096L, compressedLength * 8L));
+	}
+
+	private static int readIntLE(byte[] bytes, int off)
+	{
+		return (bytes[off] & 0xFF)
+			| ((bytes[off + 1] & 0xFF) << 8)
+			| ((bytes[off + 2] & 0xFF) << 16)
+			| ((bytes[off + 3] & 0xFF) << 24);
+	}
+
+	/**
+	 * Check if data looks like the start of a gzip stream
+	 */
+	public static boolean isHeader(byte[] bytes, int off, int len)
+	{
+		return len >= 3
+			&& bytes[off] == (byte) 0x1F
+			&& bytes[off + 1] == (byte) 0x8B
+			&& bytes[off + 2] == 8; // deflate
+	}
+
+	private static int skipHeader(byte[] bytes, int off, int end) throws IOException
+	{
+		if (end - off < 10 || !isHeader(bytes, off, end - off))
+		{
+			throw new IOException("Not in GZIP format");
+		}
+
+		int flags = bytes[off + 3] & 0xFF;
+		int pos = off + 10;
+
+		if ((flags & FEXTRA) != 0)
+		{
+			if (pos + 2 > end)
+			{
+				throw new IOException("Truncated GZIP header");
+			}
+			pos += 2 + ((bytes[pos] & 0xFF) | ((bytes[pos + 1] & 0xFF) << 8));
+		}
+
+		if ((flags & FNAME) != 0)
+		{
+			while (pos < end && bytes[pos++] != 0)
+			{
+			}
+		}
+
+		if ((flags & FCOMMENT) != 0)
+		{
+			while (pos < end && bytes[pos++] != 0)
+			{
+			}
+		}
+
+		if ((flags & FHCRC) != 0)
+		{
+			pos += 2;
+		}
+
+		if (pos > end)
+		{
+			throw new IOException("Truncated GZIP header");
+		}
+
+		return pos;
+	}
 }
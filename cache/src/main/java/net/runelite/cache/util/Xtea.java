@@ -24,8 +24,9 @@
  */
 package net.runelite.cache.util;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 public class Xtea
 {
@@ -42,13 +43,52 @@ public class Xtea
 
 	public byte[] encrypt(byte[] data, int len)
 	{
-		ByteBuf buf = Unpooled.wrappedBuffer(data, 0, len);
-		ByteBuf out = Unpooled.buffer(len);
-		int numBlocks = len / 8;
-		for (int block = 0; block < numBlocks; ++block)
+		byte[] out = Arrays.copyOf(data, len);
+		encrypt(key, out, 0, len);
+		return out;
+	}
+
+	public byte[] decrypt(byte[] data, int len)
+	{
+		byte[] out = Arrays.copyOf(data, len);
+		decrypt(key, out, 0, len);
+		return out;
+	}
+
+	/**
+	 * Encrypt data in place. Trailing bytes which do not fill a block are
+	 * left unencrypted.
+	 */
+	public void encrypt(byte[] data, int offset, int len)
+	{
+		encrypt(key, data, offset, len);
+	}
+
+	/**
+	 * Decrypt data in place. Trailing bytes which do not fill a block are
+	 * left as is.
+	 */
+	public void decrypt(byte[] data, int offset, int len)
+	{
+		decrypt(key, data, offset, len);
+	}
+
+	/**
+	 * Decrypt the contents of a buffer in place, starting at an absolute
+	 * offset. The buffer position and limit are not modified.
+	 */
+	public void decrypt(ByteBuffer buffer, int offset, int len)
+	{
+		decrypt(key, buffer, offset, len);
+	}
+
+	public static void encrypt(int[] key, byte[] data, int offset, int len)
+	{
+		int end = offset + (len & ~7);
+		for (int pos = offset; pos < end; pos += 8)
 		{
-			int v0 = buf.readInt();
-			int v1 = buf.readInt();
+			int v0 = getInt(data, pos);
+			int v1 = getInt(data, pos + 4);
 			int sum = 0;
 			for (int i = 0; i < ROUNDS; ++i)
 			{
@@ -56,22 +96,44 @@ public class Xtea
 				sum += GOLDEN_RATIO;
 				v1 += (((v0 << 4) ^ (v0 >>> 5)) + v0) ^ (sum + key[(sum >>> 11) & 3]);
 			}
-			out.writeInt(v0);
-			out.writeInt(v1);
+			putInt(data, pos, v0);
+			putInt(data, pos + 4, v1);
 		}
-		out.writeBytes(buf);
-		return out.array();
 	}
 
-	public byte[] decrypt(byte[] data, int len)
+	public static void decrypt(int[] key, byte[] data, int offset, int len)
+	{
+		int end = offset + (len & ~7);
+		for (int pos = offset; pos < end; pos += 8)
+		{
+			int v0 = getInt(data, pos);
+			int v1 = getInt(data, pos + 4);
+			int sum = GOLDEN_RATIO * ROUNDS;
+			for (int i = 0; i < ROUNDS; ++i)
+			{
+				v1 -= (((v0 << 4) ^ (v0 >>> 5)) + v0) ^ (sum + key[(sum >>> 11) & 3]);
+				sum -= GOLDEN_RATIO;
+				v0 -= (((v1 << 4) ^ (v1 >>> 5)) + v1) ^ (sum + key[sum & 3]);
+			}
+			putInt(data, pos, v0);
+			putInt(data, pos + 4, v1);
+		}
+	}
+
+	public static void decrypt(int[] key, ByteBuffer buffer, int offset, int len)
 	{
-		ByteBuf buf = Unpooled.wrappedBuffer(data, 0, len);
-		ByteBuf out = Unpooled.buffer(len);
-		int numBlocks = len / 8;
-		for (int block = 0; block < numBlocks; ++block)
+		boolean swap = buffer.order() != ByteOrder.BIG_ENDIAN;
+		int end = offset + (len & ~7);
+		for (int pos = offset; pos < end; pos += 8)
 		{
-			int v0 = buf.readInt();
-			int v1 = buf.readInt();
+			int v0 = buffer.getInt(pos);
+			int v1 = buffer.getInt(pos + 4);
+			if (swap)
+			{
+				v0 = Integer.reverseBytes(v0);
+				v1 = Integer.reverseBytes(v1);
+			}
+
 			int sum = GOLDEN_RATIO * ROUNDS;
 			for (int i = 0; i < ROUNDS; ++i)
 			{
@@ -79,10 +141,50 @@ public class Xtea
 				sum -= GOLDEN_RATIO;
 				v0 -= (((v1 << 4) ^ (v1 >>> 5)) + v1) ^ (sum + key[sum & 3]);
 			}
-			out.writeInt(v0);
-			out.writeInt(v1);
+
+			if (swap)
+			{
+				v0 = Integer.reverseBytes(v0);
+				v1 = Integer.reverseBytes(v1);
+			}
+			buffer.putInt(pos, v0);
+			buffer.putInt(pos + 4, v1);
+		}
+	}
+
+	/**
+	 * Decrypt a batch of buffers in place, each with its own key. Entries
+	 * with a null key are skipped.
+	 *
+	 * @param keys key for each buffer
+	 * @param data buffers to decrypt
+	 * @param offsets offset of the encrypted region of each buffer
+	 * @param lengths length of the encrypted region of each buffer
+	 */
+	public static void decrypt(int[][] keys, byte[][] data, int[] offsets, int[] lengths)
+	{
+		for (int i = 0; i < data.length; ++i)
+		{
+			if (keys[i] != null)
+			{
+				decrypt(keys[i], data[i], offsets[i], lengths[i]);
+			}
 		}
-		out.writeBytes(buf);
-		return out.array();
+	}
+
+	private static int getInt(byte[] b, int pos)
+	{
+		return ((b[pos] & 0xFF) << 24)
+			| ((b[pos + 1] & 0xFF) << 16)
+			| ((b[pos + 2] & 0xFF) << 8)
+			| (b[pos + 3] & 0xFF);
+	}
+
+	private static void putInt(byte[] b, int pos, int v)
+	{
+		b[pos] = (byte) (v >>> 24);
+		b[pos + 1] = (byte) (v >>> 16);
+		b[pos + 2] = (byte) (v >>> 8);
+		b[pos + 3] = (byte) v;
 	}
 }
@@ -1,55 +1,169 @@
-/*
- * Copyright (c) 2016-2017, Adam <Adam@sigterm.info>
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *
- * 1. Redistributions of source code must retain the above copyright notice, this
- *    list of conditions and the following disclaimer.
- * 2. Redistributions in binary form must reproduce the above copyright notice,
- *    this list of conditions and the following disclaimer in the documentation
- *    and/or other materials provided with the distribution.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
- * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
- * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-package net.runelite.cache.fs;
-
-import java.io.IOException;
-import java.util.Random;
-import static net.runelite.cache.fs.jagex.CompressionType.GZ;
-import static org.junit.Assert.assertArrayEquals;
-import org.junit.Test;
-
-public class ContainerTest
-{
-
-	@Test
-	public void testCompress() throws IOException
-	{
-		int[] keys = new int[]
-		{
-			4, 8, 15, 16
-		};
-		Random random = new Random(42L);
-		byte[] data = new byte[1024];
-		random.nextBytes(data);
-
-		Container container = new Container(GZ, -1);
-		container.compress(data, keys);
-		byte[] compressedData = container.data;
-
-		container = Container.decompress(compressedData, keys);
-		assertArrayEquals(data, container.data);
-	}
-
-}
+/*
+ * Copyright (c) 2016-2017, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.fs;
+
+import com.google.common.primitives.Ints;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import static net.runelite.cache.fs.jagex.CompressionType.BZ2;
+import static net.runelite.cache.fs.jagex.CompressionType.GZ;
+import static net.runelite.cache.fs.jagex.CompressionType.NONE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class ContainerTest
+{
+
+	@Test
+	public void testCompress() throws IOException
+	{
+		int[] keys = new int[]
+		{
+			4, 8, 15, 16
+		};
+		Random random = new Random(42L);
+		byte[] data = new byte[1024];
+		random.nextBytes(data);
+
+		Container container = new Container(GZ, -1);
+		container.compress(data, keys);
+		byte[] compressedData = container.data;
+
+		container = Container.decompress(compressedData, keys);
+		assertArrayEquals(data, container.data);
+	}
+
+	@Test
+	public void testDecompressRevision() throws IOException
+	{
+		int[] keys = new int[]
+		{
+			4, 8, 15, 16
+		};
+		byte[] data = "testtesttesttest1".getBytes();
+
+		Container container = new Container(GZ, 42);
+		container.compress(data, keys);
+		byte[] compressedData = container.data;
+		byte[] copy = compressedData.clone();
+
+		container = Container.decompress(compressedData, keys);
+		assertArrayEquals(data, container.data);
+		assertEquals(42, container.revision);
+
+		// the source data is decrypted into a separate buffer
+		assertArrayEquals(copy, compressedData);
+	}
+
+	@Test(expected = IOException.class)
+	public void testDecompressWrongKeys() throws IOException
+	{
+		Random random = new Random(42L);
+		byte[] data = new byte[1024];
+		random.nextBytes(data);
+
+		Container container = new Container(GZ, -1);
+		container.compress(data, new int[]
+		{
+			4, 8, 15, 16
+		});
+
+		Container.decompress(container.data, new int[]
+		{
+			4, 8, 15, 17
+		});
+	}
+
+	@Test
+	public void testCheckKeys() throws IOException
+	{
+		int[] keys = new int[]
+		{
+			4, 8, 15, 16
+		};
+		int[] wrongKeys = new int[]
+		{
+			4, 8, 15, 17
+		};
+		Random random = new Random(42L);
+		byte[] data = new byte[1024];
+		random.nextBytes(data);
+
+		for (int compression : new int[]{GZ, BZ2})
+		{
+			Container container = new Container(compression, -1);
+			container.compress(data, keys);
+
+			assertEquals(true, Container.checkKeys(container.data, keys));
+			assertEquals(false, Container.checkKeys(container.data, wrongKeys));
+		}
+
+		Container container = new Container(NONE, -1);
+		container.compress(data, keys);
+		assertNull(Container.checkKeys(container.data, keys));
+	}
+
+	@Test(expected = IOException.class)
+	public void testDecompressLengthTooLarge() throws IOException
+	{
+		byte[] data = gzip();
+		// decompressed length
+		data[5] = 0x7F;
+		Container.decompress(data, null);
+	}
+
+	@Test(expected = IOException.class)
+	public void testDecompressCrcMismatch() throws IOException
+	{
+		byte[] data = gzip();
+		// first byte of the gzip trailer crc
+		data[5 + 4 + Ints.fromBytes(data[1], data[2], data[3], data[4]) - 8] ^= 1;
+		Container.decompress(data, null);
+	}
+
+	@Test(expected = IOException.class)
+	public void testDecompressTruncatedTrailer() throws IOException
+	{
+		byte[] data = gzip();
+		int compressedLength = Ints.fromBytes(data[1], data[2], data[3], data[4]) - 4;
+		data = Arrays.copyOf(data, 5 + 4 + compressedLength);
+		System.arraycopy(Ints.toByteArray(compressedLength), 0, data, 1, 4);
+		Container.decompress(data, null);
+	}
+
+	private static byte[] gzip() throws IOException
+	{
+		Random random = new Random(42L);
+		byte[] data = new byte[1024];
+		random.nextBytes(data);
+
+		Container container = new Container(GZ, -1);
+		container.compress(data, null);
+		return container.data;
+	}
+}
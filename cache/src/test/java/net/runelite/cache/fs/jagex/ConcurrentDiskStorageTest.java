@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.fs.jagex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.runelite.cache.StoreLocation;
+import net.runelite.cache.fs.Archive;
+import net.runelite.cache.fs.Container;
+import net.runelite.cache.fs.Index;
+import net.runelite.cache.fs.Store;
+import net.runelite.cache.index.FileData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrentDiskStorageTest
+{
+	private static final int NUM_ARCHIVES = 256;
+
+	@Rule
+	public TemporaryFolder folder = StoreLocation.getTemporaryFolder();
+
+	@Test
+	public void testConcurrentReadWrite() throws Exception
+	{
+		File file = folder.newFolder();
+		Random random = new Random(42L);
+
+		byte[][] contents = new byte[NUM_ARCHIVES][];
+		for (int i = 0; i < NUM_ARCHIVES; ++i)
+		{
+			contents[i] = new byte[random.nextInt(4096)];
+			random.nextBytes(contents[i]);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			ConcurrentDiskStorage storage = new ConcurrentDiskStorage(file);
+			try (Store store = new Store(storage))
+			{
+				Index index = store.addIndex(0);
+				// archive ids above 0xFFFF require protocol 7
+				index.setProtocol(7);
+				for (int i = 0; i < NUM_ARCHIVES; ++i)
+				{
+					// archives above 0xFFFF use the larger sector header
+					Archive archive = index.addArchive(i < NUM_ARCHIVES / 2 ? i : 0x10000 + i);
+					archive.setFileData(new FileData[]{new FileData()});
+				}
+
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < NUM_ARCHIVES; ++i)
+				{
+					Archive archive = index.getArchives().get(i);
+					byte[] data = contents[i];
+					futures.add(executor.submit(() ->
+					{
+						Container container = new Container(CompressionType.GZ, -1);
+						container.compress(data, null);
+						storage.saveArchive(archive, container.data);
+						return null;
+					}));
+				}
+				for (Future<?> future : futures)
+				{
+					future.get();
+				}
+
+				store.save();
+			}
+
+			// read back with both storages
+			verify(new ConcurrentDiskStorage(file), contents, executor);
+			verify(new DiskStorage(file), contents);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private static void verify(DiskStorage storage, byte[][] contents) throws Exception
+	{
+		try (Store store = new Store(storage))
+		{
+			store.load();
+			Index index = store.findIndex(0);
+			assertEquals(NUM_ARCHIVES, index.getArchives().size());
+
+			for (int i = 0; i < NUM_ARCHIVES; ++i)
+			{
+				Archive archive = index.getArchives().get(i);
+				assertArrayEquals(contents[i], archive.decompress(storage.loadArchive(archive)));
+			}
+		}
+	}
+
+	private static void verify(ConcurrentDiskStorage storage, byte[][] contents, ExecutorService executor) throws Exception
+	{
+		try (Store store = new Store(storage))
+		{
+			store.load();
+			Index index = store.findIndex(0);
+			assertEquals(NUM_ARCHIVES, index.getArchives().size());
+
+			List<Future<byte[]>> futures = new ArrayList<>();
+			for (Archive archive : index.getArchives())
+			{
+				futures.add(executor.submit(() -> archive.decompress(storage.loadArchive(archive))));
+			}
+
+			for (int i = 0; i < NUM_ARCHIVES; ++i)
+			{
+				assertArrayEquals(contents[i], futures.get(i).get());
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.fs.jagex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.runelite.cache.StoreLocation;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedDataFileTest
+{
+	@Rule
+	public TemporaryFolder folder = StoreLocation.getTemporaryFolder();
+
+	@Test
+	public void testReadWrite() throws IOException
+	{
+		byte[] b = new byte[4096];
+		for (int i = 0; i < b.length; ++i)
+		{
+			b[i] = (byte) i;
+		}
+
+		File file = folder.newFile();
+
+		DataFileWriteResult res1, res2;
+		try (MappedDataFile df = new MappedDataFile(file))
+		{
+			res1 = df.write(42, 3, b);
+			res2 = df.write(42, 0x1FFFF, b);
+
+			Assert.assertArrayEquals(b, df.read(42, 3, res1.sector, res1.compressedLength));
+			Assert.assertArrayEquals(b, df.read(42, 0x1FFFF, res2.sector, res2.compressedLength));
+			Assert.assertNull(df.read(41, 3, res1.sector, res1.compressedLength));
+		}
+
+		// the file should be truncated to its logical length and readable by DataFile
+		try (DataFile df = new DataFile(file))
+		{
+			Assert.assertArrayEquals(b, df.read(42, 3, res1.sector, res1.compressedLength));
+			Assert.assertArrayEquals(b, df.read(42, 0x1FFFF, res2.sector, res2.compressedLength));
+
+			DataFileWriteResult res3 = df.write(42, 4, b);
+			Assert.assertEquals(res2.sector + (b.length + 509) / 510, res3.sector);
+		}
+	}
+
+	@Test
+	public void testReadSlice() throws IOException
+	{
+		File file = folder.newFile();
+
+		try (MappedDataFile df = new MappedDataFile(file))
+		{
+			DataFileWriteResult res = df.write(42, 3, "test".getBytes());
+
+			ByteBuffer buffer = df.readSlice(42, 3, res.sector, res.compressedLength);
+			byte[] b = new byte[buffer.remaining()];
+			buffer.get(b);
+			Assert.assertEquals("test", new String(b));
+		}
+	}
+}
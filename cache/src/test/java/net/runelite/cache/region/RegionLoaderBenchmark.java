@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.region;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.runelite.cache.IndexType;
+import net.runelite.cache.StoreLocation;
+import net.runelite.cache.fs.Archive;
+import net.runelite.cache.fs.Index;
+import net.runelite.cache.fs.Store;
+import net.runelite.cache.util.Djb2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares region archive lookups through the index's hash tables against
+ * the linear scan they replaced, and times a full region load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RegionLoaderBenchmark
+{
+	private static final int MAX_REGION = 32768;
+
+	private Store store;
+	private Index maps;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		store = new Store(StoreLocation.LOCATION);
+		store.load();
+		maps = store.getIndex(IndexType.MAPS);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		store.close();
+	}
+
+	@Benchmark
+	public void findRegionArchives(Blackhole blackhole)
+	{
+		for (int i = 0; i < MAX_REGION; ++i)
+		{
+			int x = i >> 8;
+			int y = i & 0xFF;
+			blackhole.consume(maps.findArchiveByName("m" + x + "_" + y));
+			blackhole.consume(maps.findArchiveByName("l" + x + "_" + y));
+		}
+	}
+
+	@Benchmark
+	public void findRegionArchivesLinear(Blackhole blackhole)
+	{
+		for (int i = 0; i < MAX_REGION; ++i)
+		{
+			int x = i >> 8;
+			int y = i & 0xFF;
+			blackhole.consume(findLinear(Djb2.hash("m" + x + "_" + y)));
+			blackhole.consume(findLinear(Djb2.hash("l" + x + "_" + y)));
+		}
+	}
+
+	@Benchmark
+	public RegionLoader loadRegions() throws IOException
+	{
+		RegionLoader regionLoader = new RegionLoader(store);
+		regionLoader.loadRegions();
+		return regionLoader;
+	}
+
+	@Benchmark
+	public RegionLoader loadRegionsParallel() throws IOException
+	{
+		RegionLoader regionLoader = new RegionLoader(store);
+		regionLoader.loadRegionsParallel();
+		return regionLoader;
+	}
+
+	private Archive findLinear(int hash)
+	{
+		for (Archive a : maps.getArchives())
+		{
+			if (a.getNameHash() == hash)
+			{
+				return a;
+			}
+		}
+		return null;
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder()
+			.include(RegionLoaderBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.cache.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares decrypting a batch of land archive sized buffers in place
+ * against the previous ByteBuf based implementation, which allocated a
+ * new buffer per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class XteaBenchmark
+{
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+	private static final int ROUNDS = 32;
+
+	@Param({"1000"})
+	private int archives;
+
+	@Param({"4096"})
+	private int size;
+
+	private int[][] keys;
+	private byte[][] data;
+	private int[] offsets;
+	private int[] lengths;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42L);
+		keys = new int[archives][];
+		data = new byte[archives][];
+		offsets = new int[archives];
+		lengths = new int[archives];
+
+		for (int i = 0; i < archives; ++i)
+		{
+			keys[i] = new int[]
+			{
+				random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt()
+			};
+			data[i] = new byte[size];
+			random.nextBytes(data[i]);
+			lengths[i] = size;
+		}
+	}
+
+	@Benchmark
+	public void decryptByteBuf(Blackhole blackhole)
+	{
+		for (int i = 0; i < archives; ++i)
+		{
+			blackhole.consume(decryptByteBuf(keys[i], data[i], lengths[i]));
+		}
+	}
+
+	@Benchmark
+	public void decryptCopy(Blackhole blackhole)
+	{
+		for (int i = 0; i < archives; ++i)
+		{
+			blackhole.consume(new Xtea(keys[i]).decrypt(data[i], lengths[i]));
+		}
+	}
+
+	@Benchmark
+	public byte[][] decryptBatchInPlace()
+	{
+		// decrypting repeatedly in place is fine, the work done is the same
+		Xtea.decrypt(keys, data, offsets, lengths);
+		return data;
+	}
+
+	private static byte[] decryptByteBuf(int[] key, byte[] data, int len)
+	{
+		ByteBuf buf = Unpooled.wrappedBuffer(data, 0, len);
+		ByteBuf out = Unpooled.buffer(len);
+		int numBlocks = len / 8;
+		for (int block = 0; block < numBlocks; ++block)
+		{
+			int v0 = buf.readInt();
+			int v1 = buf.readInt();
+			int sum = GOLDEN_RATIO * ROUNDS;
+			for (int i = 0; i < ROUNDS; ++i)
+			{
+				v1 -= (((v0 << 4) ^ (v0 >>> 5)) + v0) ^ (sum + key[(sum >>> 11) & 3]);
+				sum -= GOLDEN_RATIO;
+				v0 -= (((v1 << 4) ^ (v1 >>> 5)) + v1) ^ (sum + key[sum & 3]);
+			}
+			out.writeInt(v0);
+			out.writeInt(v1);
+		}
+		out.writeBytes(buf);
+		return out.array();
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder()
+			.include(XteaBenchmark.class.getSimpleName())
+			.addProfiler("gc")
+			.build()).run();
+	}
+}
@@ -24,6 +24,9 @@
  */
 package net.runelite.cache.util;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import static org.junit.Assert.assertArrayEquals;
 import org.junit.Test;
 
@@ -52,4 +55,81 @@ public class XteaTest
 
 		assertArrayEquals(data, decData);
 	}
+
+	@Test
+	public void testInPlace()
+	{
+		int[] key = new int[]
+		{
+			4, 8, 15, 16
+		};
+		byte[] encrypted = new byte[]
+		{
+			121, -18, 48, 64, 120, -42, -113, 77, 116, 101, 115, 116, 49
+		};
+
+		byte[] data = new byte[encrypted.length + 2];
+		System.arraycopy("testtesttest1".getBytes(), 0, data, 1, encrypted.length);
+
+		Xtea xtea = new Xtea(key);
+		xtea.encrypt(data, 1, encrypted.length);
+		assertArrayEquals(encrypted, Arrays.copyOfRange(data, 1, 1 + encrypted.length));
+
+		xtea.decrypt(data, 1, encrypted.length);
+		assertArrayEquals("testtesttest1".getBytes(), Arrays.copyOfRange(data, 1, 1 + encrypted.length));
+	}
+
+	@Test
+	public void testByteBuffer()
+	{
+		int[] key = new int[]
+		{
+			4, 8, 15, 16
+		};
+		byte[] encrypted = new byte[]
+		{
+			121, -18, 48, 64, 120, -42, -113, 77, 116, 101, 115, 116, 49
+		};
+
+		for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(encrypted.length).order(order);
+			buffer.put(encrypted);
+			buffer.flip();
+
+			new Xtea(key).decrypt(buffer, 0, encrypted.length);
+
+			byte[] decrypted = new byte[encrypted.length];
+			buffer.get(decrypted);
+			assertArrayEquals("testtesttest1".getBytes(), decrypted);
+		}
+	}
+
+	@Test
+	public void testBatch()
+	{
+		int[][] keys = new int[][]
+		{
+			{4, 8, 15, 16}, null, {23, 42, 1, 2}
+		};
+		byte[][] plain = new byte[][]
+		{
+			"testtesttest1".getBytes(), "testtesttest2".getBytes(), "testtesttesttesttest3".getBytes()
+		};
+		byte[][] data = new byte[plain.length][];
+		int[] offsets = new int[plain.length];
+		int[] lengths = new int[plain.length];
+		for (int i = 0; i < plain.length; ++i)
+		{
+			data[i] = keys[i] != null ? new Xtea(keys[i]).encrypt(plain[i], plain[i].length) : plain[i].clone();
+			lengths[i] = plain[i].length;
+		}
+
+		Xtea.decrypt(keys, data, offsets, lengths);
+
+		for (int i = 0; i < plain.length; ++i)
+		{
+			assertArrayEquals(plain[i], data[i]);
+		}
+	}
 }
@@ -24,18 +24,26 @@
  */
 package net.runelite.http.service.account;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
 import net.runelite.http.service.account.beans.SessionEntry;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import net.runelite.http.api.RuneLiteAPI;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.sql2o.Connection;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
 
 @Service
@@ -43,6 +51,21 @@ public class AuthFilter
 {
 	private final Sql2o sql2o;
 
+	/**
+	 * Recently used sessions. Sessions are removed from here when logged
+	 * out, and expire shortly after being loaded in case they are removed
+	 * by another instance.
+	 */
+	private final Cache<UUID, SessionEntry> sessionCache = CacheBuilder.newBuilder()
+		.maximumSize(10000L)
+		.expireAfterWrite(1, TimeUnit.MINUTES)
+		.build();
+
+	/**
+	 * Last used times not yet written to the database
+	 */
+	private final Map<UUID, Instant> pendingLastUsed = new ConcurrentHashMap<>();
+
 	@Autowired
 	public AuthFilter(@Qualifier("Runelite SQL2O") Sql2o sql2o)
 	{
@@ -60,11 +83,15 @@ public class AuthFilter
 
 		UUID uuid = UUID.fromString(runeliteAuth);
 
-		try (Connection con = sql2o.open())
+		SessionEntry sessionEntry = sessionCache.getIfPresent(uuid);
+		if (sessionEntry == null)
 		{
-			SessionEntry sessionEntry = con.createQuery("select user, uuid, created from sessions where uuid = :uuid")
-				.addParameter("uuid", uuid.toString())
-				.executeAndFetchFirst(SessionEntry.class);
+			try (Connection con = sql2o.open())
+			{
+				sessionEntry = con.createQuery("select user, uuid, created from sessions where uuid = :uuid")
+					.addParameter("uuid", uuid.toString())
+					.executeAndFetchFirst(SessionEntry.class);
+			}
 
 			if (sessionEntry == null)
 			{
@@ -72,17 +99,59 @@ public class AuthFilter
 				return null;
 			}
 
-			Instant now = Instant.now();
+			sessionCache.put(uuid, sessionEntry);
+		}
+
+		Instant now = Instant.now();
+		pendingLastUsed.put(uuid, now);
+		sessionEntry.setLastUsed(now);
 
-			con.createQuery("update sessions set last_used = :last_used where uuid = :uuid")
-				.addParameter("last_used", Timestamp.from(now))
-				.addParameter("uuid", uuid.toString())
-				.executeUpdate();
+		return sessionEntry;
+	}
 
-			sessionEntry.setLastUsed(now);
+	/**
+	 * Remove a session from the cache, this must be called when a session
+	 * is deleted
+	 *
+	 * @param uuid
+	 */
+	public void invalidate(UUID uuid)
+	{
+		sessionCache.invalidate(uuid);
+		pendingLastUsed.remove(uuid);
+	}
 
-			return sessionEntry;
+	@Scheduled(fixedDelay = 10_000)
+	public void flushLastUsed()
+	{
+		if (pendingLastUsed.isEmpty())
+		{
+			return;
 		}
-	}
 
+		Map<UUID, Instant> pending = new HashMap<>(pendingLastUsed);
+
+		try (Connection con = sql2o.beginTransaction())
+		{
+			Query query = con.createQuery("update sessions set last_used = :last_used where uuid = :uuid");
+
+			for (Map.Entry<UUID, Instant> entry : pending.entrySet())
+			{
+				query
+					.addParameter("last_used", Timestamp.from(entry.getValue()))
+					.addParameter("uuid", entry.getKey().toString())
+					.addToBatch();
+			}
+
+			query.executeBatch();
+			con.commit(false);
+		}
+
+		// remove only what was written, so failed writes are retried and
+		// newer times are kept for the next flush
+		for (Map.Entry<UUID, Instant> entry : pending.entrySet())
+		{
+			pendingLastUsed.remove(entry.getKey(), entry.getValue());
+		}
+	}
 }
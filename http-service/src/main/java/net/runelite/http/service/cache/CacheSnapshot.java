@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.cache.ConfigType;
+import net.runelite.cache.IndexType;
+import net.runelite.cache.definitions.ItemDefinition;
+import net.runelite.cache.definitions.NpcDefinition;
+import net.runelite.cache.definitions.ObjectDefinition;
+import net.runelite.cache.definitions.loaders.ItemLoader;
+import net.runelite.cache.definitions.loaders.NpcLoader;
+import net.runelite.cache.definitions.loaders.ObjectLoader;
+import net.runelite.cache.fs.ArchiveFiles;
+import net.runelite.cache.fs.Container;
+import net.runelite.cache.fs.FSFile;
+import net.runelite.http.service.cache.beans.ArchiveEntry;
+import net.runelite.http.service.cache.beans.CacheEntry;
+import net.runelite.http.service.cache.beans.IndexEntry;
+
+/**
+ * Decoded contents of a single cache revision. Item, npc, and object
+ * definitions are decoded up front, other archives are split into files
+ * on first use and kept in a bounded cache.
+ */
+@Slf4j
+public class CacheSnapshot
+{
+	private static final int MAX_ARCHIVES = 256;
+
+	private final CacheService cacheService;
+	private final CacheEntry cache;
+	private final Map<Integer, IndexEntry> indexes = new ConcurrentHashMap<>();
+	private final Cache<Integer, ArchiveFiles> archives = CacheBuilder.newBuilder()
+		.maximumSize(MAX_ARCHIVES)
+		.build();
+
+	private final ItemImageCache itemImages = new ItemImageCache(this);
+
+	private Map<Integer, ItemDefinition> items = Collections.emptyMap();
+	private Map<Integer, NpcDefinition> npcs = Collections.emptyMap();
+	private Map<Integer, ObjectDefinition> objects = Collections.emptyMap();
+
+	private CacheSnapshot(CacheService cacheService, CacheEntry cache)
+	{
+		this.cacheService = cacheService;
+		this.cache = cache;
+	}
+
+	/**
+	 * Load a snapshot of the given cache, decoding the item, npc, and
+	 * object definitions.
+	 *
+	 * @param cacheService
+	 * @param cache
+	 * @return
+	 * @throws IOException
+	 */
+	public static CacheSnapshot load(CacheService cacheService, CacheEntry cache) throws IOException
+	{
+		long start = System.currentTimeMillis();
+
+		CacheSnapshot snapshot = new CacheSnapshot(cacheService, cache);
+
+		ArchiveFiles itemFiles = snapshot.getConfig(ConfigType.ITEM);
+		if (itemFiles != null)
+		{
+			ItemLoader loader = new ItemLoader();
+			Map<Integer, ItemDefinition> items = new HashMap<>();
+			for (FSFile file : itemFiles.getFiles())
+			{
+				items.put(file.getFileId(), loader.load(file.getFileId(), file.getContents()));
+			}
+			snapshot.items = Collections.unmodifiableMap(items);
+		}
+
+		ArchiveFiles npcFiles = snapshot.getConfig(ConfigType.NPC);
+		if (npcFiles != null)
+		{
+			NpcLoader loader = new NpcLoader();
+			Map<Integer, NpcDefinition> npcs = new HashMap<>();
+			for (FSFile file : npcFiles.getFiles())
+			{
+				npcs.put(file.getFileId(), loader.load(file.getFileId(), file.getContents()));
+			}
+			snapshot.npcs = Collections.unmodifiableMap(npcs);
+		}
+
+		ArchiveFiles objectFiles = snapshot.getConfig(ConfigType.OBJECT);
+		if (objectFiles != null)
+		{
+			ObjectLoader loader = new ObjectLoader();
+			Map<Integer, ObjectDefinition> objects = new HashMap<>();
+			for (FSFile file : objectFiles.getFiles())
+			{
+				objects.put(file.getFileId(), loader.load(file.getFileId(), file.getContents()));
+			}
+			snapshot.objects = Collections.unmodifiableMap(objects);
+		}
+
+		log.info("Loaded cache {} (revision {}) with {} items, {} npcs, {} objects in {}ms",
+			cache.getId(), cache.getRevision(), snapshot.items.size(), snapshot.npcs.size(),
+			snapshot.objects.size(), System.currentTimeMillis() - start);
+
+		return snapshot;
+	}
+
+	public CacheEntry getCache()
+	{
+		return cache;
+	}
+
+	public ItemImageCache getItemImages()
+	{
+		return itemImages;
+	}
+
+	/**
+	 * Get the ids of all items in this cache
+	 *
+	 * @return
+	 */
+	public Set<Integer> getItemIds()
+	{
+		return items.keySet();
+	}
+
+	/**
+	 * Get a decoded item definition. The definition is shared and must not
+	 * be modified.
+	 *
+	 * @param itemId
+	 * @return
+	 */
+	public ItemDefinition getItem(int itemId)
+	{
+		return items.get(itemId);
+	}
+
+	public NpcDefinition getNpc(int npcId)
+	{
+		return npcs.get(npcId);
+	}
+
+	public ObjectDefinition getObject(int objectId)
+	{
+		return objects.get(objectId);
+	}
+
+	public ArchiveFiles getConfig(ConfigType config) throws IOException
+	{
+		return getArchiveFiles(IndexType.CONFIGS.getNumber(), config.getId());
+	}
+
+	/**
+	 * Get the files of an archive in this cache, loading them from storage
+	 * if they are not already cached.
+	 *
+	 * @param indexId
+	 * @param archiveId
+	 * @return the archive files, or null if the archive does not exist
+	 * @throws IOException
+	 */
+	public ArchiveFiles getArchiveFiles(int indexId, int archiveId) throws IOException
+	{
+		int key = indexId << 24 | archiveId;
+		ArchiveFiles archiveFiles = archives.getIfPresent(key);
+		if (archiveFiles != null)
+		{
+			return archiveFiles;
+		}
+
+		ArchiveEntry archiveEntry = findArchive(indexId, archiveId);
+		if (archiveEntry == null)
+		{
+			return null;
+		}
+
+		archiveFiles = cacheService.getArchiveFiles(archiveEntry);
+		if (archiveFiles != null)
+		{
+			archives.put(key, archiveFiles);
+		}
+		return archiveFiles;
+	}
+
+	/**
+	 * Get the decompressed data of an archive in this cache. The data is
+	 * not cached.
+	 *
+	 * @param indexId
+	 * @param archiveId
+	 * @return the archive data, or null if the archive does not exist
+	 * @throws IOException
+	 */
+	public byte[] getArchiveData(int indexId, int archiveId) throws IOException
+	{
+		ArchiveEntry archiveEntry = findArchive(indexId, archiveId);
+		if (archiveEntry == null)
+		{
+			return null;
+		}
+
+		byte[] data = cacheService.getArchive(archiveEntry);
+		if (data == null)
+		{
+			return null;
+		}
+
+		Container container = Container.decompress(data, null);
+		return container == null ? null : container.data;
+	}
+
+	/**
+	 * Find an archive in this cache
+	 *
+	 * @param indexId
+	 * @param archiveId
+	 * @return the archive, or null if it does not exist
+	 */
+	public ArchiveEntry findArchive(int indexId, int archiveId)
+	{
+		IndexEntry indexEntry = indexes.get(indexId);
+		if (indexEntry == null)
+		{
+			indexEntry = cacheService.findIndexForCache(cache, indexId);
+			if (indexEntry == null)
+			{
+				return null;
+			}
+			indexes.put(indexId, indexEntry);
+		}
+
+		return cacheService.findArchiveForIndex(indexEntry, archiveId);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.http.service.cache.beans.CacheEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a decoded snapshot of the most recent cache. When a newer cache
+ * appears the next snapshot is built, and its item images rendered, in the
+ * background and swapped in once it is ready, so requests keep being served
+ * from the previous one.
+ */
+@Service
+@Slf4j
+public class CacheSnapshotService
+{
+	private final CacheService cacheService;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("cache-snapshot-%d")
+		.setDaemon(true)
+		.build());
+
+	private final boolean prerenderItemImages;
+
+	private volatile CacheSnapshot snapshot;
+	private volatile boolean loading;
+
+	@Autowired
+	public CacheSnapshotService(
+		CacheService cacheService,
+		@Value("${cache.prerender-item-images:true}") boolean prerenderItemImages
+	)
+	{
+		this.cacheService = cacheService;
+		this.prerenderItemImages = prerenderItemImages;
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Get the snapshot of the most recent cache, loading it if this is the
+	 * first request.
+	 *
+	 * @return the snapshot, or null if there is no cache
+	 * @throws IOException
+	 */
+	public CacheSnapshot getSnapshot() throws IOException
+	{
+		CacheSnapshot s = snapshot;
+		if (s != null)
+		{
+			return s;
+		}
+
+		synchronized (this)
+		{
+			if (snapshot == null)
+			{
+				CacheEntry cache = cacheService.findMostRecent();
+				if (cache == null)
+				{
+					return null;
+				}
+
+				CacheSnapshot loaded = CacheSnapshot.load(cacheService, cache);
+				snapshot = loaded;
+				executor.execute(() -> prerender(loaded));
+			}
+			return snapshot;
+		}
+	}
+
+	@Scheduled(fixedDelay = 60_000)
+	public void checkForNewCache()
+	{
+		CacheSnapshot current = snapshot;
+		if (current == null || loading)
+		{
+			// the first snapshot is loaded on demand
+			return;
+		}
+
+		CacheEntry cache = cacheService.findMostRecent();
+		if (cache == null || cache.getId() == current.getCache().getId())
+		{
+			return;
+		}
+
+		log.info("Found new cache {} (revision {}), warming snapshot", cache.getId(), cache.getRevision());
+
+		loading = true;
+		executor.execute(() ->
+		{
+			try
+			{
+				CacheSnapshot next = CacheSnapshot.load(cacheService, cache);
+				prerender(next);
+				snapshot = next;
+			}
+			catch (Exception ex)
+			{
+				log.warn("unable to load cache snapshot", ex);
+			}
+			finally
+			{
+				loading = false;
+			}
+		});
+	}
+
+	private void prerender(CacheSnapshot snapshot)
+	{
+		if (!prerenderItemImages)
+		{
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+			new ThreadFactoryBuilder()
+				.setNameFormat("item-image-render-%d")
+				.setDaemon(true)
+				.build());
+		try
+		{
+			snapshot.getItemImages().prerender(pool);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+}
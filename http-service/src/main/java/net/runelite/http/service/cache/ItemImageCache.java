@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.cache.ConfigType;
+import net.runelite.cache.IndexType;
+import net.runelite.cache.definitions.ItemDefinition;
+import net.runelite.cache.definitions.ModelDefinition;
+import net.runelite.cache.definitions.SpriteDefinition;
+import net.runelite.cache.definitions.TextureDefinition;
+import net.runelite.cache.definitions.loaders.ItemLoader;
+import net.runelite.cache.definitions.loaders.ModelLoader;
+import net.runelite.cache.definitions.loaders.SpriteLoader;
+import net.runelite.cache.definitions.loaders.TextureLoader;
+import net.runelite.cache.definitions.providers.ItemProvider;
+import net.runelite.cache.definitions.providers.ModelProvider;
+import net.runelite.cache.definitions.providers.SpriteProvider;
+import net.runelite.cache.definitions.providers.TextureProvider;
+import net.runelite.cache.fs.ArchiveFiles;
+import net.runelite.cache.fs.FSFile;
+import net.runelite.cache.item.ItemSpriteFactory;
+import net.runelite.cache.item.RSTextureProvider;
+
+/**
+ * Rendered item images for a single cache revision. Encoded images are
+ * cached by item id, quantity, border, and shadow color, and the model and
+ * sprite data used to render them is shared between renders.
+ * <p>
+ * The renderer modifies the definitions it is given, so models, sprites, and
+ * items are decoded again for each render from the cached data. Textures
+ * are decoded once and have their pixels computed up front so that they
+ * can be shared.
+ */
+@Slf4j
+public class ItemImageCache
+{
+	public static final int DEFAULT_QUANTITY = 1;
+	public static final int DEFAULT_BORDER = 1;
+	public static final int DEFAULT_SHADOW_COLOR = 3153952;
+
+	private static final long MAX_IMAGE_BYTES = 64L * 1024 * 1024;
+	private static final long MAX_MODEL_BYTES = 64L * 1024 * 1024;
+	private static final long MAX_SPRITE_BYTES = 16L * 1024 * 1024;
+
+	private final CacheSnapshot snapshot;
+
+	private final Cache<ImageKey, byte[]> images = CacheBuilder.newBuilder()
+		.maximumWeight(MAX_IMAGE_BYTES)
+		.<ImageKey, byte[]>weigher((k, v) -> v.length)
+		.build();
+	private final Cache<Integer, byte[]> models = CacheBuilder.newBuilder()
+		.maximumWeight(MAX_MODEL_BYTES)
+		.<Integer, byte[]>weigher((k, v) -> v.length)
+		.build();
+	private final Cache<Integer, byte[]> sprites = CacheBuilder.newBuilder()
+		.maximumWeight(MAX_SPRITE_BYTES)
+		.<Integer, byte[]>weigher((k, v) -> v.length)
+		.build();
+
+	private final ItemProvider itemProvider = this::provideItem;
+	private final ModelProvider modelProvider = this::provideModel;
+	private final SpriteProvider spriteProvider = this::provideSprite;
+	private final TextureProvider textureProvider = this::provideTextures;
+
+	private TextureDefinition[] textures;
+
+	ItemImageCache(CacheSnapshot snapshot)
+	{
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Get an item image encoded as png, rendering it if it is not cached.
+	 *
+	 * @param itemId
+	 * @param quantity
+	 * @param border
+	 * @param shadowColor
+	 * @return the png image, or null if the item can't be rendered
+	 * @throws IOException
+	 */
+	public byte[] getImage(int itemId, int quantity, int border, int shadowColor) throws IOException
+	{
+		ImageKey key = new ImageKey(itemId, quantity, border, shadowColor);
+		byte[] image = images.getIfPresent(key);
+		if (image != null)
+		{
+			return image;
+		}
+
+		if (snapshot.getItem(itemId) == null)
+		{
+			return null;
+		}
+
+		BufferedImage itemImage = ItemSpriteFactory.createSprite(itemProvider, modelProvider, spriteProvider, textureProvider,
+			itemId, quantity, border, shadowColor, false);
+		if (itemImage == null)
+		{
+			return null;
+		}
+
+		ByteArrayOutputStream bao = new ByteArrayOutputStream();
+		ImageIO.write(itemImage, "png", bao);
+		image = bao.toByteArray();
+		images.put(key, image);
+		return image;
+	}
+
+	/**
+	 * Render the default image of every item on the given executor, and
+	 * wait for them to complete.
+	 *
+	 * @param executor
+	 * @throws InterruptedException
+	 */
+	public void prerender(ExecutorService executor) throws InterruptedException
+	{
+		long start = System.currentTimeMillis();
+		AtomicInteger failed = new AtomicInteger();
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int itemId : snapshot.getItemIds())
+		{
+			futures.add(executor.submit(() ->
+			{
+				try
+				{
+					if (getImage(itemId, DEFAULT_QUANTITY, DEFAULT_BORDER, DEFAULT_SHADOW_COLOR) == null)
+					{
+						failed.incrementAndGet();
+					}
+				}
+				catch (Exception ex)
+				{
+					log.debug("unable to render item {}", itemId, ex);
+					failed.incrementAndGet();
+				}
+			}));
+		}
+
+		for (Future<?> future : futures)
+		{
+			try
+			{
+				future.get();
+			}
+			catch (ExecutionException ex)
+			{
+				// the task catches its own exceptions
+				throw new AssertionError(ex);
+			}
+		}
+
+		log.info("Rendered {} item images ({} failed) for cache {} in {}ms", futures.size() - failed.get(),
+			failed.get(), snapshot.getCache().getId(), System.currentTimeMillis() - start);
+	}
+
+	private ItemDefinition provideItem(int itemId)
+	{
+		try
+		{
+			ArchiveFiles archiveFiles = snapshot.getConfig(ConfigType.ITEM);
+			FSFile file = archiveFiles == null ? null : archiveFiles.findFile(itemId);
+			if (file == null)
+			{
+				return null;
+			}
+
+			return new ItemLoader().load(itemId, file.getContents());
+		}
+		catch (IOException ex)
+		{
+			log.warn(null, ex);
+			return null;
+		}
+	}
+
+	private ModelDefinition provideModel(int modelId) throws IOException
+	{
+		byte[] data = models.getIfPresent(modelId);
+		if (data == null)
+		{
+			data = snapshot.getArchiveData(IndexType.MODELS.getNumber(), modelId);
+			if (data == null)
+			{
+				return null;
+			}
+			models.put(modelId, data);
+		}
+
+		return new ModelLoader().load(modelId, data);
+	}
+
+	private SpriteDefinition provideSprite(int spriteId, int frameId)
+	{
+		try
+		{
+			byte[] data = sprites.getIfPresent(spriteId);
+			if (data == null)
+			{
+				data = snapshot.getArchiveData(IndexType.SPRITES.getNumber(), spriteId);
+				if (data == null)
+				{
+					return null;
+				}
+				sprites.put(spriteId, data);
+			}
+
+			SpriteDefinition[] defs = new SpriteLoader().load(spriteId, data);
+			return defs[frameId];
+		}
+		catch (Exception ex)
+		{
+			log.warn(null, ex);
+			return null;
+		}
+	}
+
+	private synchronized TextureDefinition[] provideTextures()
+	{
+		if (textures != null)
+		{
+			return textures;
+		}
+
+		try
+		{
+			ArchiveFiles archiveFiles = snapshot.getArchiveFiles(IndexType.TEXTURES.getNumber(), 0);
+			if (archiveFiles == null)
+			{
+				return null;
+			}
+
+			TextureLoader loader = new TextureLoader();
+			TextureDefinition[] defs = new TextureDefinition[archiveFiles.getFiles().size()];
+			int i = 0;
+			for (FSFile file : archiveFiles.getFiles())
+			{
+				defs[i++] = loader.load(file.getFileId(), file.getContents());
+			}
+
+			// compute the texture pixels now, as they are otherwise computed
+			// lazily during rendering and the definitions are shared
+			RSTextureProvider rsTextureProvider = new RSTextureProvider(() -> defs, spriteProvider);
+			for (TextureDefinition def : defs)
+			{
+				rsTextureProvider.load(def.getId());
+			}
+
+			textures = defs;
+			return textures;
+		}
+		catch (Exception ex)
+		{
+			log.warn(null, ex);
+			return null;
+		}
+	}
+
+	@Value
+	private static class ImageKey
+	{
+		private final int itemId;
+		private final int quantity;
+		private final int border;
+		private final int shadowColor;
+	}
+}
@@ -26,9 +26,11 @@ package net.runelite.http.service.config;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import net.runelite.http.api.config.ConfigEntry;
+import net.runelite.http.api.config.ConfigPatch;
 import net.runelite.http.api.config.Configuration;
 import net.runelite.http.service.account.AuthFilter;
 import net.runelite.http.service.account.beans.SessionEntry;
@@ -38,9 +40,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
+import static org.springframework.web.bind.annotation.RequestMethod.PATCH;
 import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 import org.springframework.web.bind.annotation.RestController;
 import org.sql2o.Connection;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
 import org.sql2o.Sql2oException;
 
@@ -109,6 +113,55 @@ public class ConfigService
 		return new Configuration(config);
 	}
 
+	@RequestMapping(method = PATCH)
+	public void patch(
+		HttpServletRequest request,
+		HttpServletResponse response,
+		@RequestBody ConfigPatch patch
+	) throws IOException
+	{
+		SessionEntry session = auth.handle(request, response);
+
+		if (session == null)
+		{
+			return;
+		}
+
+		try (Connection con = sql2o.beginTransaction())
+		{
+			if (!patch.getEdit().isEmpty())
+			{
+				Query query = con.createQuery("insert into config (user, `key`, value) values (:user, :key, :value) on duplicate key update `key` = :key, value = :value");
+
+				for (Map.Entry<String, String> entry : patch.getEdit().entrySet())
+				{
+					query.addParameter("user", session.getUser())
+						.addParameter("key", entry.getKey())
+						.addParameter("value", entry.getValue() != null ? entry.getValue() : "")
+						.addToBatch();
+				}
+
+				query.executeBatch();
+			}
+
+			if (!patch.getUnset().isEmpty())
+			{
+				Query query = con.createQuery("delete from config where user = :user and `key` = :key");
+
+				for (String key : patch.getUnset())
+				{
+					query.addParameter("user", session.getUser())
+						.addParameter("key", key)
+						.addToBatch();
+				}
+
+				query.executeBatch();
+			}
+
+			con.commit(false);
+		}
+	}
+
 	@RequestMapping(path = "/{key:.+}", method = PUT)
 	public void setKey(
 		HttpServletRequest request,
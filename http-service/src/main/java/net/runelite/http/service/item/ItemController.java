@@ -67,7 +67,7 @@ public class ItemController
 	{
 		this.itemService = itemService;
 
-		memorizedPrices = Suppliers.memoizeWithExpiration(() -> itemService.fetchPrices().stream()
+		memorizedPrices = Suppliers.memoizeWithExpiration(() -> itemService.getLatestPrices().stream()
 			.map(priceEntry ->
 			{
 				Item item = new Item();
@@ -28,14 +28,19 @@ import com.google.gson.JsonParseException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.cache.definitions.ItemDefinition;
 import net.runelite.http.api.RuneLiteAPI;
@@ -51,6 +56,7 @@ import org.springframework.stereotype.Service;
 import org.sql2o.Connection;
 import org.sql2o.Query;
 import org.sql2o.Sql2o;
+import org.sql2o.Sql2oException;
 
 @Service
 @Slf4j
@@ -79,10 +85,17 @@ public class ItemService
 		+ "  `time` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00',\n"
 		+ "  `fetched_time` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00',\n"
 		+ "  UNIQUE KEY `item_time` (`item`,`time`),\n"
-		+ "  KEY `item_fetched_time` (`item`,`fetched_time`)\n"
+		+ "  KEY `item_fetched_time` (`item`,`fetched_time`),\n"
+		+ "  KEY `fetched_time` (`fetched_time`)\n"
 		+ ") ENGINE=InnoDB";
 
+	// for tables created before the price refresh
+	private static final String PRICES_FETCHED_TIME_KEY = "ALTER TABLE `prices`\n"
+		+ "  ADD KEY `fetched_time` (`fetched_time`);";
+
 	private static final int MAX_PENDING = 512;
+	// rows fetched by other instances may commit late, so refreshes re-read recent rows
+	private static final Duration PRICE_REFRESH_OVERLAP = Duration.ofMinutes(5);
 
 	private final Sql2o sql2o;
 	private final CacheService cacheService;
@@ -90,6 +103,7 @@ public class ItemService
 	private final ConcurrentLinkedQueue<PendingLookup> pendingLookups = new ConcurrentLinkedQueue<PendingLookup>();
 	private int[] tradeableItems;
 	private final Random random = new Random();
+	private volatile PriceSnapshot priceSnapshot;
 
 	@Autowired
 	public ItemService(@Qualifier("Runelite SQL2O") Sql2o sql2o,
@@ -105,6 +119,16 @@ public class ItemService
 
 			con.createQuery(CREATE_PRICES)
 				.executeUpdate();
+
+			try
+			{
+				con.createQuery(PRICES_FETCHED_TIME_KEY)
+					.executeUpdate();
+			}
+			catch (Sql2oException ex)
+			{
+				// Ignore, happens when index already exists
+			}
 		}
 	}
 
@@ -139,6 +163,12 @@ public class ItemService
 
 	public PriceEntry getPrice(int itemId, Instant time)
 	{
+		PriceSnapshot snapshot = priceSnapshot;
+		if (time == null && snapshot != null)
+		{
+			return snapshot.get(itemId);
+		}
+
 		try (Connection con = sql2o.open())
 		{
 			return getPrice(con, itemId, time);
@@ -147,31 +177,44 @@ public class ItemService
 
 	public List<PriceEntry> getPrices(int... itemIds)
 	{
-		try (Connection con = sql2o.open())
+		Set<Integer> ids = new LinkedHashSet<>();
+		for (int itemId : itemIds)
 		{
-			Set<Integer> seen = new HashSet<>();
-			List<PriceEntry> priceEntries = new ArrayList<>(itemIds.length);
-
-			for (int itemId : itemIds)
-			{
-				if (seen.contains(itemId))
-				{
-					continue;
-				}
-				seen.add(itemId);
-
-				PriceEntry priceEntry = getPrice(con, itemId, null);
+			ids.add(itemId);
+		}
 
-				if (priceEntry == null)
-				{
-					continue;
-				}
+		PriceSnapshot snapshot = priceSnapshot;
+		if (snapshot == null)
+		{
+			return fetchPrices(ids);
+		}
 
+		List<PriceEntry> priceEntries = new ArrayList<>(ids.size());
+		for (int itemId : ids)
+		{
+			PriceEntry priceEntry = snapshot.get(itemId);
+			if (priceEntry != null)
+			{
 				priceEntries.add(priceEntry);
 			}
+		}
+		return priceEntries;
+	}
 
-			return priceEntries;
+	/**
+	 * Get the latest price of every item
+	 *
+	 * @return
+	 */
+	public List<PriceEntry> getLatestPrices()
+	{
+		PriceSnapshot snapshot = priceSnapshot;
+		if (snapshot == null)
+		{
+			return fetchPrices();
 		}
+
+		return snapshot.getAll();
 	}
 
 	public List<ItemEntry> search(String search)
@@ -287,6 +330,8 @@ public class ItemService
 			query.executeBatch();
 			con.commit(false);
 
+			updatePrices(entries);
+
 			return entries;
 		}
 	}
@@ -301,6 +346,63 @@ public class ItemService
 		}
 	}
 
+	private List<PriceEntry> fetchPrices(Collection<Integer> itemIds)
+	{
+		if (itemIds.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		String items = itemIds.stream()
+			.map(String::valueOf)
+			.collect(Collectors.joining(","));
+
+		try (Connection con = sql2o.open())
+		{
+			return con.createQuery("select prices.item, prices.price, prices.time, prices.fetched_time from (select item, max(time) as time from prices"
+				+ " where item in (" + items + ") group by item) t join prices on t.item = prices.item and t.time = prices.time")
+				.executeAndFetch(PriceEntry.class);
+		}
+	}
+
+	private synchronized void updatePrices(List<PriceEntry> entries)
+	{
+		if (priceSnapshot != null)
+		{
+			priceSnapshot = priceSnapshot.update(entries);
+		}
+	}
+
+	@Scheduled(fixedDelay = 60_000)
+	public void refreshPrices()
+	{
+		PriceSnapshot snapshot = priceSnapshot;
+		if (snapshot == null)
+		{
+			List<PriceEntry> entries = fetchPrices();
+			synchronized (this)
+			{
+				priceSnapshot = PriceSnapshot.EMPTY.update(entries);
+			}
+			log.debug("Loaded {} prices", entries.size());
+			return;
+		}
+
+		Instant watermark = snapshot.getWatermark();
+		Instant since = watermark == null ? Instant.EPOCH : watermark.minus(PRICE_REFRESH_OVERLAP);
+
+		List<PriceEntry> entries;
+		try (Connection con = sql2o.open())
+		{
+			entries = con.createQuery("select item, price, time, fetched_time from prices where fetched_time >= :since")
+				.addParameter("since", Timestamp.from(since))
+				.executeAndFetch(PriceEntry.class);
+		}
+
+		updatePrices(entries);
+		log.debug("Refreshed {} prices since {}", entries.size(), since);
+	}
+
 	private RSItem fetchRSItem(int itemId) throws IOException
 	{
 		HttpUrl itemUrl = RS_ITEM_URL
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.item;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Latest price of each item, indexed by item id. Snapshots are immutable,
+ * updates return a new snapshot.
+ */
+class PriceSnapshot
+{
+	static final PriceSnapshot EMPTY = new PriceSnapshot(new int[0], new long[0], null);
+
+	private final int[] prices;
+	// epoch millis of each price, 0 if the item has no price
+	private final long[] times;
+	// most recent fetched_time seen
+	private final Instant watermark;
+
+	private PriceSnapshot(int[] prices, long[] times, Instant watermark)
+	{
+		this.prices = prices;
+		this.times = times;
+		this.watermark = watermark;
+	}
+
+	/**
+	 * Create a new snapshot with the given price entries applied. Entries
+	 * only replace the current price of an item if they are not older.
+	 *
+	 * @param entries
+	 * @return
+	 */
+	PriceSnapshot update(Collection<PriceEntry> entries)
+	{
+		if (entries.isEmpty())
+		{
+			return this;
+		}
+
+		int maxId = prices.length - 1;
+		for (PriceEntry entry : entries)
+		{
+			maxId = Math.max(maxId, entry.getItem());
+		}
+
+		int[] newPrices = Arrays.copyOf(prices, maxId + 1);
+		long[] newTimes = Arrays.copyOf(times, maxId + 1);
+		Instant newWatermark = watermark;
+
+		for (PriceEntry entry : entries)
+		{
+			int item = entry.getItem();
+			if (item < 0)
+			{
+				continue;
+			}
+
+			long time = entry.getTime().toEpochMilli();
+			if (time >= newTimes[item])
+			{
+				newPrices[item] = entry.getPrice();
+				newTimes[item] = time;
+			}
+
+			Instant fetched = entry.getFetched_time();
+			if (fetched != null && (newWatermark == null || fetched.isAfter(newWatermark)))
+			{
+				newWatermark = fetched;
+			}
+		}
+
+		return new PriceSnapshot(newPrices, newTimes, newWatermark);
+	}
+
+	/**
+	 * Get the latest price of an item
+	 *
+	 * @param itemId
+	 * @return the price, or null if the item has no price
+	 */
+	PriceEntry get(int itemId)
+	{
+		if (itemId < 0 || itemId >= times.length || times[itemId] == 0)
+		{
+			return null;
+		}
+
+		return entry(itemId);
+	}
+
+	/**
+	 * Get the latest price of every item
+	 *
+	 * @return
+	 */
+	List<PriceEntry> getAll()
+	{
+		List<PriceEntry> entries = new ArrayList<>();
+		for (int i = 0; i < times.length; ++i)
+		{
+			if (times[i] != 0)
+			{
+				entries.add(entry(i));
+			}
+		}
+		return entries;
+	}
+
+	Instant getWatermark()
+	{
+		return watermark;
+	}
+
+	private PriceEntry entry(int itemId)
+	{
+		PriceEntry priceEntry = new PriceEntry();
+		priceEntry.setItem(itemId);
+		priceEntry.setPrice(prices[itemId]);
+		priceEntry.setTime(Instant.ofEpochMilli(times[itemId]));
+		return priceEntry;
+	}
+}
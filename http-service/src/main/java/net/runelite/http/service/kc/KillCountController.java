@@ -24,9 +24,6 @@
  */
 package net.runelite.http.service.kc;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import java.util.concurrent.TimeUnit;
 import net.runelite.http.service.util.exception.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -39,11 +36,6 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/kc")
 public class KillCountController
 {
-	private final Cache<KillCountKey, Integer> cache = CacheBuilder.newBuilder()
-		.expireAfterWrite(2, TimeUnit.MINUTES)
-		.maximumSize(128L)
-		.build();
-
 	@Autowired
 	private KillCountService killCountService;
 
@@ -56,26 +48,22 @@ public class KillCountController
 		}
 
 		killCountService.setKc(name, boss, kc);
-		cache.put(new KillCountKey(name, boss), kc);
 	}
 
 	@GetMapping
 	public int get(@RequestParam String name, @RequestParam String boss)
 	{
-		Integer kc = cache.getIfPresent(new KillCountKey(name, boss));
-		if (kc == null)
-		{
-			kc = killCountService.getKc(name, boss);
-			if (kc != null)
-			{
-				cache.put(new KillCountKey(name, boss), kc);
-			}
-		}
-
+		Integer kc = killCountService.getKc(name, boss);
 		if (kc == null)
 		{
 			throw new NotFoundException();
 		}
 		return kc;
 	}
+
+	@GetMapping("/stats")
+	public KillCountStats stats()
+	{
+		return killCountService.getStats();
+	}
 }
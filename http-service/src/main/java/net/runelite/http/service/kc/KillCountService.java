@@ -24,14 +24,21 @@
  */
 package net.runelite.http.service.kc;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.sql2o.Connection;
 import org.sql2o.Sql2o;
 
 @Service
+@Slf4j
 public class KillCountService
 {
 	private static final String CREATE = "CREATE TABLE IF NOT EXISTS `kc` (\n" +
@@ -43,32 +50,85 @@ public class KillCountService
 		"   KEY `time` (`time`)\n" +
 		") ENGINE=InnoDB;";
 
+	private static final int EXPIRE_MINUTES = 2;
+
 	private final Sql2o sql2o;
+	private final boolean database;
+	private final Cache<KillCountKey, Integer> killCounts;
 
 	@Autowired
-	public KillCountService(@Qualifier("Runelite SQL2O") Sql2o sql2o)
+	public KillCountService(
+		@Qualifier("Runelite SQL2O") Sql2o sql2o,
+		@Value("${kc.max-entries:65536}") long maxEntries,
+		@Value("${kc.database:false}") boolean database
+	)
 	{
 		this.sql2o = sql2o;
+		this.database = database;
 
-		try (Connection con = sql2o.open())
+		// entries are expired lazily as the segments are accessed, and the
+		// rest are cleaned up by the scheduled purge
+		killCounts = CacheBuilder.newBuilder()
+			.concurrencyLevel(16)
+			.maximumSize(maxEntries)
+			.expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+			.recordStats()
+			.build();
+
+		if (database)
 		{
-			con.createQuery(CREATE)
-				.executeUpdate();
+			try (Connection con = sql2o.open())
+			{
+				con.createQuery(CREATE)
+					.executeUpdate();
+			}
 		}
 	}
 
 	public Integer getKc(String name, String boss)
+	{
+		KillCountKey key = new KillCountKey(name, boss);
+		Integer kc = killCounts.getIfPresent(key);
+		if (kc == null && database)
+		{
+			kc = getKcFromDatabase(name, boss);
+			if (kc != null)
+			{
+				killCounts.put(key, kc);
+			}
+		}
+		return kc;
+	}
+
+	public void setKc(String name, String boss, int kc)
+	{
+		killCounts.put(new KillCountKey(name, boss), kc);
+
+		if (database)
+		{
+			setKcInDatabase(name, boss, kc);
+		}
+	}
+
+	public KillCountStats getStats()
+	{
+		CacheStats stats = killCounts.stats();
+		return new KillCountStats(killCounts.size(), stats.hitCount(), stats.missCount(),
+			stats.hitRate(), stats.evictionCount());
+	}
+
+	private Integer getKcFromDatabase(String name, String boss)
 	{
 		try (Connection con = sql2o.open())
 		{
-			return con.createQuery("select kc from kc where name = :name and boss = :boss")
+			return con.createQuery("select kc from kc where name = :name and boss = :boss and time >= (now() - interval 2 minute)")
 				.addParameter("name", name)
 				.addParameter("boss", boss)
 				.executeScalar(Integer.class);
 		}
 	}
 
-	public void setKc(String name, String boss, int kc)
+	private void setKcInDatabase(String name, String boss, int kc)
 	{
 		try (Connection con = sql2o.open())
 		{
@@ -82,10 +142,15 @@ public class KillCountService
 
 	public void purge()
 	{
-		try (Connection con = sql2o.open())
+		killCounts.cleanUp();
+
+		if (database)
 		{
-			con.createQuery("delete from kc where time < (now() - interval 2 minute);")
-				.executeUpdate();
+			try (Connection con = sql2o.open())
+			{
+				con.createQuery("delete from kc where time < (now() - interval 2 minute);")
+					.executeUpdate();
+			}
 		}
 	}
 
@@ -93,5 +158,7 @@ public class KillCountService
 	public void schedPurge()
 	{
 		purge();
+
+		log.debug("Kill count stats: {}", getStats());
 	}
 }
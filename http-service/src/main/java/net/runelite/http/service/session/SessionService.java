@@ -24,13 +24,18 @@
  */
 package net.runelite.http.service.session;
 
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.sql2o.Connection;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
 
 @Service
@@ -38,6 +43,11 @@ public class SessionService
 {
 	private final Sql2o sql2o;
 
+	/**
+	 * Last ping times not yet written to the database
+	 */
+	private final Map<UUID, Instant> pendingLast = new ConcurrentHashMap<>();
+
 	@Autowired
 	public SessionService(
 		@Qualifier("Runelite SQL2O") Sql2o sql2o
@@ -72,6 +82,8 @@ public class SessionService
 
 	public void deleteSession(SessionEntry session)
 	{
+		pendingLast.remove(session.getUuid());
+
 		try (Connection con = sql2o.open())
 		{
 			con.createQuery("delete from session where uuid = :uuid")
@@ -80,15 +92,48 @@ public class SessionService
 		}
 	}
 
+	/**
+	 * Mark a session as used now. The update is written to the database
+	 * by the next flush.
+	 *
+	 * @param session
+	 */
 	public void updateLast(UUID session)
 	{
-		try (Connection con = sql2o.open())
+		pendingLast.put(session, Instant.now());
+	}
+
+	@Scheduled(fixedDelay = 10_000)
+	public void flushLast()
+	{
+		if (pendingLast.isEmpty())
 		{
-			Instant last = Instant.now();
-			con.createQuery("update session set last = :last where uuid = :uuid")
-				.addParameter("last", last)
-				.addParameter("uuid", session.toString())
-				.executeUpdate();
+			return;
+		}
+
+		Map<UUID, Instant> pending = new HashMap<>(pendingLast);
+
+		try (Connection con = sql2o.beginTransaction())
+		{
+			Query query = con.createQuery("update session set last = :last where uuid = :uuid");
+
+			for (Map.Entry<UUID, Instant> entry : pending.entrySet())
+			{
+				query
+					.addParameter("last", Timestamp.from(entry.getValue()))
+					.addParameter("uuid", entry.getKey().toString())
+					.addToBatch();
+			}
+
+			query.executeBatch();
+			con.commit(false);
+		}
+
+		// remove only what was written, so failed writes are retried and
+		// newer times are kept for the next flush
+		for (Map.Entry<UUID, Instant> entry : pending.entrySet())
+		{
+			pendingLast.remove(entry.getKey(), entry.getValue());
 		}
 	}
 
@@ -113,6 +158,8 @@ public class SessionService
 	@Scheduled(fixedDelay = 60000)
 	public void expire()
 	{
+		// write pending pings first so active sessions are not expired
+		flushLast();
 		deleteExpired();
 	}
 }
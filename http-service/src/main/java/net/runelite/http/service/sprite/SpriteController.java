@@ -24,13 +24,11 @@
  */
 package net.runelite.http.service.sprite;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -42,31 +40,46 @@ public class SpriteController
 	@Autowired
 	private SpriteService spriteService;
 
-	private final LoadingCache<Integer, byte[]> spriteCache = CacheBuilder.newBuilder()
-		.maximumSize(1024L)
-		.expireAfterWrite(10, TimeUnit.MINUTES)
-		.build(new CacheLoader<Integer, byte[]>()
-		{
-			@Override
-			public byte[] load(Integer key) throws Exception
-			{
-				byte[] data = spriteService.getImagePng(key >>> 16, key & 0xffff);
-				return data != null ? data : new byte[0];
-			}
-		});
-
 	@RequestMapping(produces = "image/png")
 	public ResponseEntity<byte[]> getSprite(
 		@RequestParam int spriteId,
-		@RequestParam(defaultValue = "0") int frameId
+		@RequestParam(defaultValue = "0") int frameId,
+		@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch
 	) throws IOException
 	{
-		byte[] data = spriteCache.getUnchecked(spriteId << 16 | frameId);
-		if (data == null || data.length == 0)
+		SpriteImage image = spriteService.getImagePng(spriteId, frameId);
+		if (image == null)
 		{
 			return ResponseEntity.notFound().build();
 		}
 
-		return ResponseEntity.ok(data);
+		if (matches(ifNoneMatch, image.getEtag()))
+		{
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+				.eTag(image.getEtag())
+				.build();
+		}
+
+		return ResponseEntity.ok()
+			.eTag(image.getEtag())
+			.body(image.getPng());
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag)
+	{
+		if (ifNoneMatch == null)
+		{
+			return false;
+		}
+
+		for (String tag : ifNoneMatch.split(","))
+		{
+			tag = tag.trim();
+			if (tag.equals("*") || tag.equals(etag))
+			{
+				return true;
+			}
+		}
+		return false;
 	}
 }
@@ -24,88 +24,248 @@
  */
 package net.runelite.http.service.sprite;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.BaseEncoding;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import javax.imageio.ImageIO;
+import lombok.extern.slf4j.Slf4j;
 import net.runelite.cache.IndexType;
 import net.runelite.cache.definitions.SpriteDefinition;
 import net.runelite.cache.definitions.loaders.SpriteLoader;
 import net.runelite.cache.fs.ArchiveFiles;
 import net.runelite.cache.fs.FSFile;
 import net.runelite.http.service.cache.CacheService;
+import net.runelite.http.service.cache.CacheSnapshot;
+import net.runelite.http.service.cache.CacheSnapshotService;
 import net.runelite.http.service.cache.beans.ArchiveEntry;
-import net.runelite.http.service.cache.beans.CacheEntry;
-import net.runelite.http.service.cache.beans.IndexEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
+@Slf4j
 public class SpriteService
 {
+	private static final long MAX_CACHE_BYTES = 32L * 1024 * 1024;
+	private static final int WARMUP_SPRITES = 256;
+	// approximate size of a cache entry excluding the png, so missing sprites are weighed too
+	private static final int ENTRY_OVERHEAD = 128;
+	private static final int MAX_ID = 0xffff;
+
+	// cached for sprites which do not exist
+	private static final SpriteImage MISSING = new SpriteImage(new byte[0], null);
+
+	private final CacheService cacheService;
+	private final CacheSnapshotService cacheSnapshotService;
+	private final boolean warmup;
+
+	private final Cache<Long, SpriteImage> images = CacheBuilder.newBuilder()
+		.maximumWeight(MAX_CACHE_BYTES)
+		.<Long, SpriteImage>weigher((k, v) -> ENTRY_OVERHEAD + v.getPng().length)
+		.build();
+	private final Map<Integer, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+	private volatile int warmedCacheId = -1;
+
 	@Autowired
-	private CacheService cacheService;
+	public SpriteService(
+		CacheService cacheService,
+		CacheSnapshotService cacheSnapshotService,
+		@Value("${sprite.warmup:true}") boolean warmup
+	)
+	{
+		this.cacheService = cacheService;
+		this.cacheSnapshotService = cacheSnapshotService;
+		this.warmup = warmup;
+	}
 
 	public SpriteDefinition getSprite(int spriteId, int frameId) throws IOException
 	{
-		CacheEntry cache = cacheService.findMostRecent();
-		if (cache == null)
+		CacheSnapshot snapshot = cacheSnapshotService.getSnapshot();
+		if (snapshot == null)
+		{
+			return null;
+		}
+
+		ArchiveEntry archive = snapshot.findArchive(IndexType.SPRITES.getNumber(), spriteId);
+		if (archive == null)
 		{
 			return null;
 		}
 
-		IndexEntry index = cacheService.findIndexForCache(cache, IndexType.SPRITES.getNumber());
-		if (index == null)
+		return loadSprite(archive, frameId);
+	}
+
+	public BufferedImage getImage(int spriteId, int frameId) throws IOException
+	{
+		SpriteDefinition sprite = getSprite(spriteId, frameId);
+		if (sprite == null)
 		{
 			return null;
 		}
 
-		ArchiveEntry archive = cacheService.findArchiveForIndex(index, spriteId);
+		BufferedImage bufferedImage = getSpriteImage(sprite);
+		return bufferedImage;
+	}
+
+	/**
+	 * Get a sprite of the most recent cache encoded as png. Encoded sprites
+	 * are cached per cache.
+	 *
+	 * @param spriteId
+	 * @param frameId
+	 * @return the sprite, or null if it does not exist
+	 * @throws IOException
+	 */
+	public SpriteImage getImagePng(int spriteId, int frameId) throws IOException
+	{
+		// ids are packed into the cache key
+		if (spriteId < 0 || spriteId > MAX_ID || frameId < 0 || frameId > MAX_ID)
+		{
+			return null;
+		}
+
+		CacheSnapshot snapshot = cacheSnapshotService.getSnapshot();
+		if (snapshot == null)
+		{
+			return null;
+		}
+
+		SpriteImage image = getImagePng(snapshot, spriteId, frameId);
+		if (image != null)
+		{
+			requestCounts.computeIfAbsent(spriteId << 16 | frameId, k -> new AtomicInteger())
+				.incrementAndGet();
+		}
+		return image;
+	}
+
+	private SpriteImage getImagePng(CacheSnapshot snapshot, int spriteId, int frameId) throws IOException
+	{
+		long key = (long) snapshot.getCache().getId() << 32 | (long) spriteId << 16 | frameId;
+		SpriteImage image = images.getIfPresent(key);
+		if (image != null)
+		{
+			return image == MISSING ? null : image;
+		}
+
+		// only cache sprites as missing if they definitely do not exist
+		// in this cache, and not when the archive fails to load
+		ArchiveEntry archive = snapshot.findArchive(IndexType.SPRITES.getNumber(), spriteId);
 		if (archive == null)
 		{
+			images.put(key, MISSING);
 			return null;
 		}
 
-		ArchiveFiles files = cacheService.getArchiveFiles(archive);
-		if (files == null)
+		SpriteDefinition[] frames = loadFrames(archive);
+		if (frames == null)
 		{
 			return null;
 		}
 
-		FSFile file = files.getFiles().get(0);
-		byte[] contents = file.getContents();
-		SpriteDefinition[] sprite = new SpriteLoader().load(archive.getArchiveId(), contents);
-		if (frameId < 0 || frameId >= sprite.length)
+		if (frameId >= frames.length)
 		{
+			images.put(key, MISSING);
 			return null;
 		}
 
-		return sprite[frameId];
+		SpriteDefinition sprite = frames[frameId];
+
+		ByteArrayOutputStream bao = new ByteArrayOutputStream();
+		ImageIO.write(getSpriteImage(sprite), "png", bao);
+
+		// archives are stored by hash, so the hash changes with the contents
+		String etag = "\"" + BaseEncoding.base16().lowerCase().encode(archive.getHash()) + "-" + frameId + "\"";
+		image = new SpriteImage(bao.toByteArray(), etag);
+		images.put(key, image);
+		return image;
 	}
 
-	public BufferedImage getImage(int spriteId, int frameId) throws IOException
+	/**
+	 * Encode the most requested sprites when a new cache is found, so they
+	 * are ready before they are requested.
+	 */
+	@Scheduled(fixedDelay = 60_000)
+	public void warmup()
 	{
-		SpriteDefinition sprite = getSprite(spriteId, frameId);
-		if (sprite == null)
+		if (!warmup)
+		{
+			return;
+		}
+
+		CacheSnapshot snapshot;
+		try
+		{
+			snapshot = cacheSnapshotService.getSnapshot();
+		}
+		catch (IOException ex)
+		{
+			log.warn("unable to load cache snapshot", ex);
+			return;
+		}
+
+		if (snapshot == null || snapshot.getCache().getId() == warmedCacheId)
+		{
+			return;
+		}
+
+		warmedCacheId = snapshot.getCache().getId();
+
+		List<Integer> sprites = requestCounts.entrySet().stream()
+			.sorted(Comparator.comparingInt((Map.Entry<Integer, AtomicInteger> e) -> e.getValue().get()).reversed())
+			.limit(WARMUP_SPRITES)
+			.map(Map.Entry::getKey)
+			.collect(Collectors.toList());
+
+		long start = System.currentTimeMillis();
+		for (int sprite : sprites)
+		{
+			try
+			{
+				getImagePng(snapshot, sprite >>> 16, sprite & 0xffff);
+			}
+			catch (IOException ex)
+			{
+				log.debug("unable to encode sprite {}", sprite >>> 16, ex);
+			}
+		}
+
+		log.info("Encoded {} sprites for cache {} in {}ms", sprites.size(), warmedCacheId,
+			System.currentTimeMillis() - start);
+	}
+
+	private SpriteDefinition loadSprite(ArchiveEntry archive, int frameId) throws IOException
+	{
+		SpriteDefinition[] sprite = loadFrames(archive);
+		if (sprite == null || frameId < 0 || frameId >= sprite.length)
 		{
 			return null;
 		}
 
-		BufferedImage bufferedImage = getSpriteImage(sprite);
-		return bufferedImage;
+		return sprite[frameId];
 	}
 
-	public byte[] getImagePng(int spriteId, int frameId) throws IOException
+	private SpriteDefinition[] loadFrames(ArchiveEntry archive) throws IOException
 	{
-		BufferedImage image = getImage(spriteId, frameId);
-		if (image == null)
+		ArchiveFiles files = cacheService.getArchiveFiles(archive);
+		if (files == null)
 		{
 			return null;
 		}
 
-		ByteArrayOutputStream bao = new ByteArrayOutputStream();
-		ImageIO.write(image, "png", bao);
-		return bao.toByteArray();
+		FSFile file = files.getFiles().get(0);
+		byte[] contents = file.getContents();
+		return new SpriteLoader().load(archive.getArchiveId(), contents);
 	}
 
 	private BufferedImage getSpriteImage(SpriteDefinition sprite)
@@ -24,13 +24,20 @@
  */
 package net.runelite.http.service.xp;
 
-import java.io.IOException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.http.api.hiscore.HiscoreEndpoint;
 import net.runelite.http.api.hiscore.HiscoreResult;
+import net.runelite.http.api.hiscore.HiscoreSkill;
+import net.runelite.http.api.hiscore.Skill;
 import net.runelite.http.api.xp.XpData;
-import net.runelite.http.service.hiscore.HiscoreResultBuilder;
 import net.runelite.http.service.hiscore.HiscoreService;
 import net.runelite.http.service.xp.beans.PlayerEntity;
 import net.runelite.http.service.xp.beans.XpEntity;
@@ -38,12 +45,30 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.sql2o.Connection;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
 
 @Service
 @Slf4j
 public class XpTrackerService
 {
+	private static final int LOOKUP_THREADS = 4;
+	private static final double HISCORE_REQUESTS_PER_SECOND = 10;
+	private static final int QUEUE_SIZE = 4096;
+	private static final int BATCH_SIZE = 100;
+	private static final long MAX_CACHED_PLAYERS = 100_000L;
+
+	// skills stored in the xp table, overall only has a rank column
+	private static final HiscoreSkill[] SKILLS = new HiscoreSkill[]
+	{
+		HiscoreSkill.ATTACK, HiscoreSkill.DEFENCE, HiscoreSkill.STRENGTH, HiscoreSkill.HITPOINTS,
+		HiscoreSkill.RANGED, HiscoreSkill.PRAYER, HiscoreSkill.MAGIC, HiscoreSkill.COOKING,
+		HiscoreSkill.WOODCUTTING, HiscoreSkill.FLETCHING, HiscoreSkill.FISHING, HiscoreSkill.FIREMAKING,
+		HiscoreSkill.CRAFTING, HiscoreSkill.SMITHING, HiscoreSkill.MINING, HiscoreSkill.HERBLORE,
+		HiscoreSkill.AGILITY, HiscoreSkill.THIEVING, HiscoreSkill.SLAYER, HiscoreSkill.FARMING,
+		HiscoreSkill.RUNECRAFT, HiscoreSkill.HUNTER, HiscoreSkill.CONSTRUCTION
+	};
+
 	@Autowired
 	@Qualifier("Runelite XP Tracker SQL2O")
 	private Sql2o sql2o;
@@ -51,117 +76,226 @@ public class XpTrackerService
 	@Autowired
 	private HiscoreService hiscoreService;
 
-	public void update(String username) throws IOException
+	// lower case username -> player id
+	private final Cache<String, Integer> playerIds = CacheBuilder.newBuilder()
+		.maximumSize(MAX_CACHED_PLAYERS)
+		.build();
+	// lower case username -> last stored xp
+	private final Cache<String, XpData> lastXp = CacheBuilder.newBuilder()
+		.maximumSize(MAX_CACHED_PLAYERS)
+		.build();
+
+	private XpUpdateQueue updateQueue;
+
+	@PostConstruct
+	public void start()
 	{
-		HiscoreResultBuilder hiscoreResultBuilder = hiscoreService.lookupUsername(username, HiscoreEndpoint.NORMAL);
-		HiscoreResult hiscoreResult = hiscoreResultBuilder.build();
-		update(username, hiscoreResult);
+		updateQueue = new XpUpdateQueue(hiscoreService, this::write,
+			LOOKUP_THREADS, HISCORE_REQUESTS_PER_SECOND, QUEUE_SIZE, BATCH_SIZE);
 	}
 
+	@PreDestroy
+	public void shutdown()
+	{
+		updateQueue.shutdown();
+	}
+
+	/**
+	 * Queue a hiscore lookup and xp update for a player
+	 *
+	 * @param username
+	 */
+	public void update(String username)
+	{
+		if (!updateQueue.queueLookup(username))
+		{
+			log.debug("Dropping xp lookup for {}", username);
+		}
+	}
+
+	/**
+	 * Queue an xp update for a player
+	 *
+	 * @param username
+	 * @param hiscoreResult
+	 */
 	public void update(String username, HiscoreResult hiscoreResult)
 	{
-		try (Connection con = sql2o.open())
+		if (!updateQueue.queueUpdate(username, hiscoreResult))
+		{
+			log.debug("Dropping xp update for {}", username);
+		}
+	}
+
+	private void write(List<XpUpdate> updates)
+	{
+		try (Connection con = sql2o.beginTransaction())
 		{
-			PlayerEntity playerEntity = findOrCreatePlayer(con, username);
+			Instant now = Instant.now();
+			List<XpUpdate> changed = new ArrayList<>(updates.size());
+			Map<String, XpData> changedXp = new HashMap<>();
 
-			XpEntity currentXp = findXpAtTime(con, username, Instant.now());
-			if (currentXp != null)
+			for (XpUpdate update : updates)
 			{
-				XpData hiscoreData = XpMapper.INSTANCE.hiscoreResultToXpData(hiscoreResult);
-				XpData existingData = XpMapper.INSTANCE.xpEntityToXpData(currentXp);
+				String key = update.getUsername().toLowerCase();
+				XpData hiscoreData = XpMapper.INSTANCE.hiscoreResultToXpData(update.getHiscoreResult());
+
+				XpData existingData = lastXp.getIfPresent(key);
+				if (existingData == null)
+				{
+					XpEntity currentXp = findXpAtTime(con, update.getUsername(), now);
+					if (currentXp != null)
+					{
+						existingData = XpMapper.INSTANCE.xpEntityToXpData(currentXp);
+						lastXp.put(key, existingData);
+					}
+				}
 
 				if (hiscoreData.equals(existingData))
 				{
-					log.debug("Hiscore for {} already up to date", username);
-					return;
+					log.debug("Hiscore for {} already up to date", update.getUsername());
+					continue;
 				}
+
+				changed.add(update);
+				changedXp.put(key, hiscoreData);
+			}
+
+			if (changed.isEmpty())
+			{
+				return;
+			}
+
+			Map<String, Integer> ids = findOrCreatePlayers(con, changed);
+			changed.removeIf(update -> !ids.containsKey(update.getUsername().toLowerCase()));
+			if (changed.isEmpty())
+			{
+				return;
 			}
 
-			con.createQuery("insert into xp (player,attack_xp,defence_xp,strength_xp,hitpoints_xp,ranged_xp,prayer_xp,magic_xp,cooking_xp,woodcutting_xp,"
-				+ "fletching_xp,fishing_xp,firemaking_xp,crafting_xp,smithing_xp,mining_xp,herblore_xp,agility_xp,thieving_xp,slayer_xp,farming_xp,"
-				+ "runecraft_xp,hunter_xp,construction_xp,attack_rank,defence_rank,strength_rank,hitpoints_rank,ranged_rank,prayer_rank,magic_rank,"
-				+ "cooking_rank,woodcutting_rank,fletching_rank,fishing_rank,firemaking_rank,crafting_rank,smithing_rank,mining_rank,herblore_rank,"
-				+ "agility_rank,thieving_rank,slayer_rank,farming_rank,runecraft_rank,hunter_rank,construction_rank,overall_rank) values (:player,:attack_xp,:defence_xp,"
-				+ ":strength_xp,:hitpoints_xp,:ranged_xp,:prayer_xp,:magic_xp,:cooking_xp,:woodcutting_xp,:fletching_xp,:fishing_xp,:firemaking_xp,"
-				+ ":crafting_xp,:smithing_xp,:mining_xp,:herblore_xp,:agility_xp,:thieving_xp,:slayer_xp,:farming_xp,:runecraft_xp,:hunter_xp,"
-				+ ":construction_xp,:attack_rank,:defence_rank,:strength_rank,:hitpoints_rank,:ranged_rank,:prayer_rank,:magic_rank,:cooking_rank,"
-				+ ":woodcutting_rank,:fletching_rank,:fishing_rank,:firemaking_rank,:crafting_rank,:smithing_rank,:mining_rank,:herblore_rank,"
-				+ ":agility_rank,:thieving_rank,:slayer_rank,:farming_rank,:runecraft_rank,:hunter_rank,:construction_rank,:overall_rank)")
-				.addParameter("player", playerEntity.getId())
-				.addParameter("attack_xp", hiscoreResult.getAttack().getExperience())
-				.addParameter("defence_xp", hiscoreResult.getDefence().getExperience())
-				.addParameter("strength_xp", hiscoreResult.getStrength().getExperience())
-				.addParameter("hitpoints_xp", hiscoreResult.getHitpoints().getExperience())
-				.addParameter("ranged_xp", hiscoreResult.getRanged().getExperience())
-				.addParameter("prayer_xp", hiscoreResult.getPrayer().getExperience())
-				.addParameter("magic_xp", hiscoreResult.getMagic().getExperience())
-				.addParameter("cooking_xp", hiscoreResult.getCooking().getExperience())
-				.addParameter("woodcutting_xp", hiscoreResult.getWoodcutting().getExperience())
-				.addParameter("fletching_xp", hiscoreResult.getFletching().getExperience())
-				.addParameter("fishing_xp", hiscoreResult.getFishing().getExperience())
-				.addParameter("firemaking_xp", hiscoreResult.getFiremaking().getExperience())
-				.addParameter("crafting_xp", hiscoreResult.getCrafting().getExperience())
-				.addParameter("smithing_xp", hiscoreResult.getSmithing().getExperience())
-				.addParameter("mining_xp", hiscoreResult.getMining().getExperience())
-				.addParameter("herblore_xp", hiscoreResult.getHerblore().getExperience())
-				.addParameter("agility_xp", hiscoreResult.getAgility().getExperience())
-				.addParameter("thieving_xp", hiscoreResult.getThieving().getExperience())
-				.addParameter("slayer_xp", hiscoreResult.getSlayer().getExperience())
-				.addParameter("farming_xp", hiscoreResult.getFarming().getExperience())
-				.addParameter("runecraft_xp", hiscoreResult.getRunecraft().getExperience())
-				.addParameter("hunter_xp", hiscoreResult.getHunter().getExperience())
-				.addParameter("construction_xp", hiscoreResult.getConstruction().getExperience())
-				.addParameter("attack_rank", hiscoreResult.getAttack().getRank())
-				.addParameter("defence_rank", hiscoreResult.getDefence().getRank())
-				.addParameter("strength_rank", hiscoreResult.getStrength().getRank())
-				.addParameter("hitpoints_rank", hiscoreResult.getHitpoints().getRank())
-				.addParameter("ranged_rank", hiscoreResult.getRanged().getRank())
-				.addParameter("prayer_rank", hiscoreResult.getPrayer().getRank())
-				.addParameter("magic_rank", hiscoreResult.getMagic().getRank())
-				.addParameter("cooking_rank", hiscoreResult.getCooking().getRank())
-				.addParameter("woodcutting_rank", hiscoreResult.getWoodcutting().getRank())
-				.addParameter("fletching_rank", hiscoreResult.getFletching().getRank())
-				.addParameter("fishing_rank", hiscoreResult.getFishing().getRank())
-				.addParameter("firemaking_rank", hiscoreResult.getFiremaking().getRank())
-				.addParameter("crafting_rank", hiscoreResult.getCrafting().getRank())
-				.addParameter("smithing_rank", hiscoreResult.getSmithing().getRank())
-				.addParameter("mining_rank", hiscoreResult.getMining().getRank())
-				.addParameter("herblore_rank", hiscoreResult.getHerblore().getRank())
-				.addParameter("agility_rank", hiscoreResult.getAgility().getRank())
-				.addParameter("thieving_rank", hiscoreResult.getThieving().getRank())
-				.addParameter("slayer_rank", hiscoreResult.getSlayer().getRank())
-				.addParameter("farming_rank", hiscoreResult.getFarming().getRank())
-				.addParameter("runecraft_rank", hiscoreResult.getRunecraft().getRank())
-				.addParameter("hunter_rank", hiscoreResult.getHunter().getRank())
-				.addParameter("construction_rank", hiscoreResult.getConstruction().getRank())
-				.addParameter("overall_rank", hiscoreResult.getOverall().getRank())
-				.executeUpdate();
+			insertXp(con, changed, ids);
+			con.commit(false);
+
+			// only cache ids once the players are committed, as rolled back ids are not reused
+			playerIds.putAll(ids);
+			lastXp.putAll(changedXp);
+			log.debug("Stored {} xp updates", changed.size());
 		}
 	}
 
-	private synchronized PlayerEntity findOrCreatePlayer(Connection con, String username)
+	private Map<String, Integer> findOrCreatePlayers(Connection con, List<XpUpdate> updates)
 	{
-		PlayerEntity playerEntity = con.createQuery("select * from player where name = :name")
-			.addParameter("name", username)
-			.executeAndFetchFirst(PlayerEntity.class);
-		if (playerEntity != null)
+		Map<String, Integer> ids = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+
+		for (XpUpdate update : updates)
 		{
-			return playerEntity;
+			String key = update.getUsername().toLowerCase();
+			Integer id = playerIds.getIfPresent(key);
+			if (id != null)
+			{
+				ids.put(key, id);
+			}
+			else
+			{
+				missing.add(update.getUsername());
+			}
 		}
 
-		Instant now = Instant.now();
+		if (missing.isEmpty())
+		{
+			return ids;
+		}
 
-		int id = con.createQuery("insert into player (name, tracked_since) values (:name, :tracked_since)")
-			.addParameter("name", username)
-			.addParameter("tracked_since", now)
-			.executeUpdate()
-			.getKey(int.class);
+		StringBuilder insert = new StringBuilder("insert ignore into player (name, tracked_since) values ");
+		StringBuilder select = new StringBuilder("select id, name from player where name in (");
+		for (int i = 0; i < missing.size(); ++i)
+		{
+			if (i > 0)
+			{
+				insert.append(',');
+				select.append(',');
+			}
+			insert.append("(:name").append(i).append(", :tracked_since)");
+			select.append(":name").append(i);
+		}
+		select.append(')');
+
+		Query insertQuery = con.createQuery(insert.toString())
+			.addParameter("tracked_since", Instant.now());
+		Query selectQuery = con.createQuery(select.toString())
+			.throwOnMappingFailure(false);
+		for (int i = 0; i < missing.size(); ++i)
+		{
+			insertQuery.addParameter("name" + i, missing.get(i));
+			selectQuery.addParameter("name" + i, missing.get(i));
+		}
+
+		insertQuery.executeUpdate();
+
+		for (PlayerEntity playerEntity : selectQuery.executeAndFetch(PlayerEntity.class))
+		{
+			String key = playerEntity.getName().toLowerCase();
+			ids.put(key, playerEntity.getId());
+		}
 
-		playerEntity = new PlayerEntity();
-		playerEntity.setId(id);
-		playerEntity.setName(username);
-		playerEntity.setTracked_since(now);
-		return playerEntity;
+		return ids;
+	}
+
+	private void insertXp(Connection con, List<XpUpdate> updates, Map<String, Integer> ids)
+	{
+		StringBuilder sb = new StringBuilder("insert into xp (player");
+		for (HiscoreSkill skill : SKILLS)
+		{
+			sb.append(',').append(column(skill, "xp"));
+		}
+		for (HiscoreSkill skill : SKILLS)
+		{
+			sb.append(',').append(column(skill, "rank"));
+		}
+		sb.append(',').append(column(HiscoreSkill.OVERALL, "rank")).append(") values ");
+
+		for (int i = 0; i < updates.size(); ++i)
+		{
+			if (i > 0)
+			{
+				sb.append(',');
+			}
+
+			sb.append("(:player").append(i);
+			for (HiscoreSkill skill : SKILLS)
+			{
+				sb.append(",:").append(column(skill, "xp")).append(i);
+			}
+			for (HiscoreSkill skill : SKILLS)
+			{
+				sb.append(",:").append(column(skill, "rank")).append(i);
+			}
+			sb.append(",:").append(column(HiscoreSkill.OVERALL, "rank")).append(i).append(')');
+		}
+
+		Query query = con.createQuery(sb.toString());
+		for (int i = 0; i < updates.size(); ++i)
+		{
+			XpUpdate update = updates.get(i);
+			HiscoreResult hiscoreResult = update.getHiscoreResult();
+
+			query.addParameter("player" + i, ids.get(update.getUsername().toLowerCase()));
+			for (HiscoreSkill skill : SKILLS)
+			{
+				Skill s = hiscoreResult.getSkill(skill);
+				query.addParameter(column(skill, "xp") + i, s.getExperience());
+				query.addParameter(column(skill, "rank") + i, s.getRank());
+			}
+			query.addParameter(column(HiscoreSkill.OVERALL, "rank") + i, hiscoreResult.getOverall().getRank());
+		}
+
+		query.executeUpdate();
+	}
+
+	private static String column(HiscoreSkill skill, String type)
+	{
+		return skill.name().toLowerCase() + "_" + type;
 	}
 
 	private XpEntity findXpAtTime(Connection con, String username, Instant time)
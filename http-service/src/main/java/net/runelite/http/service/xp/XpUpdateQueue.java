@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.xp;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.http.api.hiscore.HiscoreEndpoint;
+import net.runelite.http.api.hiscore.HiscoreResult;
+import net.runelite.http.service.hiscore.HiscoreService;
+import net.runelite.http.service.util.exception.NotFoundException;
+
+/**
+ * Queue of pending xp updates. Hiscore lookups are run on a pool of
+ * threads, rate limited per hiscore host, and the results are passed to
+ * the writer in batches from a single thread. Lookups for a player which is
+ * already queued are coalesced.
+ */
+@Slf4j
+class XpUpdateQueue
+{
+	private static final long MAX_BATCH_DELAY_MS = 1000L;
+
+	private final HiscoreService hiscoreService;
+	private final Consumer<List<XpUpdate>> writer;
+	private final int batchSize;
+	private final double requestsPerSecond;
+
+	// lower case username -> username of queued lookups
+	private final Map<String, String> pending = new ConcurrentHashMap<>();
+	private final BlockingQueue<String> lookupQueue;
+	private final BlockingQueue<XpUpdate> writeQueue;
+	private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+	private final ExecutorService lookupExecutor;
+	private final Thread writerThread;
+	private volatile boolean running = true;
+
+	XpUpdateQueue(HiscoreService hiscoreService, Consumer<List<XpUpdate>> writer,
+		int lookupThreads, double requestsPerSecond, int queueSize, int batchSize)
+	{
+		this.hiscoreService = hiscoreService;
+		this.writer = writer;
+		this.batchSize = batchSize;
+		this.requestsPerSecond = requestsPerSecond;
+		this.lookupQueue = new ArrayBlockingQueue<>(queueSize);
+		this.writeQueue = new ArrayBlockingQueue<>(queueSize);
+
+		lookupExecutor = Executors.newFixedThreadPool(lookupThreads, new ThreadFactoryBuilder()
+			.setNameFormat("xp-lookup-%d")
+			.setDaemon(true)
+			.build());
+		for (int i = 0; i < lookupThreads; ++i)
+		{
+			lookupExecutor.execute(this::runLookups);
+		}
+
+		writerThread = new Thread(this::runWriter, "xp-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Queue a hiscore lookup for a player
+	 *
+	 * @param username
+	 * @return false if the queue is full and the lookup was dropped
+	 */
+	boolean queueLookup(String username)
+	{
+		String key = username.toLowerCase();
+		if (pending.putIfAbsent(key, username) != null)
+		{
+			// already queued
+			return true;
+		}
+
+		if (!lookupQueue.offer(key))
+		{
+			pending.remove(key);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Queue an update with an already looked up hiscore
+	 *
+	 * @param username
+	 * @param hiscoreResult
+	 * @return false if the queue is full and the update was dropped
+	 */
+	boolean queueUpdate(String username, HiscoreResult hiscoreResult)
+	{
+		return writeQueue.offer(new XpUpdate(username, hiscoreResult));
+	}
+
+	void shutdown()
+	{
+		running = false;
+		lookupExecutor.shutdownNow();
+		writerThread.interrupt();
+	}
+
+	private void runLookups()
+	{
+		RateLimiter rateLimiter = rateLimiters.computeIfAbsent(HiscoreEndpoint.NORMAL.getHiscoreURL().host(),
+			host -> RateLimiter.create(requestsPerSecond));
+
+		while (running)
+		{
+			String username;
+			try
+			{
+				String key = lookupQueue.take();
+				// lookups queued after this point get a new lookup
+				username = pending.remove(key);
+			}
+			catch (InterruptedException ex)
+			{
+				return;
+			}
+
+			rateLimiter.acquire();
+
+			try
+			{
+				HiscoreResult hiscoreResult = hiscoreService.lookupUsername(username, HiscoreEndpoint.NORMAL).build();
+				if (!queueUpdate(username, hiscoreResult))
+				{
+					log.debug("Dropping xp update for {}", username);
+				}
+			}
+			catch (NotFoundException ex)
+			{
+				log.debug("Player {} not found on the hiscores", username);
+			}
+			catch (Exception ex)
+			{
+				log.warn("Unable to look up hiscore for {}", username, ex);
+			}
+		}
+	}
+
+	private void runWriter()
+	{
+		List<XpUpdate> batch = new ArrayList<>(batchSize);
+		while (running || !writeQueue.isEmpty())
+		{
+			try
+			{
+				XpUpdate update = writeQueue.poll(1, TimeUnit.SECONDS);
+				if (update == null)
+				{
+					continue;
+				}
+				batch.add(update);
+
+				// wait a short time to fill the batch
+				long deadline = System.currentTimeMillis() + MAX_BATCH_DELAY_MS;
+				while (batch.size() < batchSize)
+				{
+					long wait = deadline - System.currentTimeMillis();
+					update = wait > 0 ? writeQueue.poll(wait, TimeUnit.MILLISECONDS) : writeQueue.poll();
+					if (update == null)
+					{
+						break;
+					}
+					batch.add(update);
+				}
+			}
+			catch (InterruptedException ex)
+			{
+				// write out the remaining updates before exiting
+				running = false;
+			}
+
+			if (!batch.isEmpty())
+			{
+				write(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void write(List<XpUpdate> batch)
+	{
+		// keep only the most recent update of each player
+		Map<String, XpUpdate> updates = new LinkedHashMap<>();
+		for (XpUpdate update : batch)
+		{
+			updates.put(update.getUsername().toLowerCase(), update);
+		}
+
+		try
+		{
+			writer.accept(new ArrayList<>(updates.values()));
+		}
+		catch (Exception ex)
+		{
+			log.warn("Unable to write {} xp updates", updates.size(), ex);
+		}
+	}
+}
@@ -24,8 +24,14 @@
  */
 package net.runelite.http.service.xtea;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import net.runelite.cache.IndexType;
 import net.runelite.cache.fs.Container;
@@ -69,9 +75,19 @@ public class XteaService
 		+ "  KEY `region` (`region`,`time`)\n"
 		+ ") ENGINE=InnoDB";
 
+	private static final long MAX_ARCHIVE_BYTES = 32L * 1024 * 1024;
+
 	private final Sql2o sql2o;
 	private final CacheService cacheService;
 
+	// region -> latest key
+	private final Map<Integer, XteaEntry> latestKeys = new ConcurrentHashMap<>();
+	// land archive data by cache id and region
+	private final Cache<Long, byte[]> archives = CacheBuilder.newBuilder()
+		.maximumWeight(MAX_ARCHIVE_BYTES)
+		.<Long, byte[]>weigher((k, v) -> v.length)
+		.build();
+
 	@Autowired
 	public XteaService(
 		@Qualifier("Runelite SQL2O") Sql2o sql2o,
@@ -86,104 +102,126 @@ public class XteaService
 			con.createQuery(CREATE_SQL)
 				.executeUpdate();
 		}
+
+		loadLatestKeys();
 	}
 
-	private XteaEntry findLatestXtea(Connection con, int region)
+	private void loadLatestKeys()
 	{
-		return con.createQuery("select region, time, key1, key2, key3, key4 from xtea "
-			+ "where region = :region "
-			+ "order by time desc "
-			+ "limit 1")
-			.addParameter("region", region)
-			.executeAndFetchFirst(XteaEntry.class);
+		try (Connection con = sql2o.open())
+		{
+			List<XteaEntry> entries = con.createQuery(
+				"select t1.region, t1.time, t2.rev, t2.key1, t2.key2, t2.key3, t2.key4 from " +
+					"(select region,max(time) as time from xtea group by region) t1 " +
+					"join xtea t2 on t1.region = t2.region and t1.time = t2.time")
+				.executeAndFetch(XteaEntry.class);
+
+			for (XteaEntry entry : entries)
+			{
+				latestKeys.put(entry.getRegion(), entry);
+			}
+
+			logger.info("Loaded {} xtea keys", latestKeys.size());
+		}
 	}
 
 	@RequestMapping(method = POST)
 	public void submit(@RequestBody XteaRequest xteaRequest)
 	{
-		try (Connection con = sql2o.beginTransaction())
+		CacheEntry cache = null;
+		List<XteaEntry> newEntries = new ArrayList<>();
+
+		for (XteaKey key : xteaRequest.getKeys())
 		{
-			CacheEntry cache = cacheService.findMostRecent();
+			int region = key.getRegion();
+			int[] keys = key.getKeys();
 
-			if (cache == null)
+			if (keys.length != 4)
 			{
-				throw new InternalServerErrorException("No most recent cache");
+				throw new IllegalArgumentException("Key length must be 4");
 			}
 
-			Query query = con.createQuery("insert into xtea (region, rev, key1, key2, key3, key4) "
-				+ "values (:region, :rev, :key1, :key2, :key3, :key4)");
+			XteaEntry xteaEntry = latestKeys.get(region);
 
-			for (XteaKey key : xteaRequest.getKeys())
+			// already have these?
+			if (xteaEntry != null
+				&& xteaEntry.getKey1() == keys[0]
+				&& xteaEntry.getKey2() == keys[1]
+				&& xteaEntry.getKey3() == keys[2]
+				&& xteaEntry.getKey4() == keys[3])
 			{
-				int region = key.getRegion();
-				int[] keys = key.getKeys();
+				continue;
+			}
 
-				XteaEntry xteaEntry = findLatestXtea(con, region);
+			if (cache == null)
+			{
+				cache = cacheService.findMostRecent();
 
-				if (keys.length != 4)
+				if (cache == null)
 				{
-					throw new IllegalArgumentException("Key length must be 4");
+					throw new InternalServerErrorException("No most recent cache");
 				}
+			}
 
-				// already have these?
-				if (xteaEntry != null
-					&& xteaEntry.getKey1() == keys[0]
-					&& xteaEntry.getKey2() == keys[1]
-					&& xteaEntry.getKey3() == keys[2]
-					&& xteaEntry.getKey4() == keys[3])
-				{
-					continue;
-				}
+			if (!checkKeys(cache, region, keys))
+			{
+				continue;
+			}
 
-				if (!checkKeys(cache, region, keys))
-				{
-					continue;
-				}
+			XteaEntry entry = new XteaEntry();
+			entry.setRegion(region);
+			entry.setTime(Instant.now());
+			entry.setRev(xteaRequest.getRevision());
+			entry.setKey1(keys[0]);
+			entry.setKey2(keys[1]);
+			entry.setKey3(keys[2]);
+			entry.setKey4(keys[3]);
+			newEntries.add(entry);
+		}
 
-				query.addParameter("region", region)
-					.addParameter("rev", xteaRequest.getRevision())
-					.addParameter("key1", keys[0])
-					.addParameter("key2", keys[1])
-					.addParameter("key3", keys[2])
-					.addParameter("key4", keys[3])
+		if (newEntries.isEmpty())
+		{
+			return;
+		}
+
+		try (Connection con = sql2o.beginTransaction())
+		{
+			Query query = con.createQuery("insert into xtea (region, rev, key1, key2, key3, key4) "
+				+ "values (:region, :rev, :key1, :key2, :key3, :key4)");
+
+			for (XteaEntry entry : newEntries)
+			{
+				query.addParameter("region", entry.getRegion())
+					.addParameter("rev", entry.getRev())
+					.addParameter("key1", entry.getKey1())
+					.addParameter("key2", entry.getKey2())
+					.addParameter("key3", entry.getKey3())
+					.addParameter("key4", entry.getKey4())
 					.addToBatch();
 			}
 
 			query.executeBatch();
 			con.commit(false);
 		}
+
+		for (XteaEntry entry : newEntries)
+		{
+			latestKeys.put(entry.getRegion(), entry);
+		}
 	}
 
 	@RequestMapping
 	public List<XteaKey> get()
 	{
-		try (Connection con = sql2o.open())
-		{
-			List<XteaEntry> entries = con.createQuery(
-				"select t1.region, t1.time, t2.rev, t2.key1, t2.key2, t2.key3, t2.key4 from " +
-					"(select region,max(time) as time from xtea group by region) t1 " +
-					"join xtea t2 on t1.region = t2.region and t1.time = t2.time")
-				.executeAndFetch(XteaEntry.class);
-
-			return entries.stream()
-				.map(XteaService::entryToKey)
-				.collect(Collectors.toList());
-		}
+		return latestKeys.values().stream()
+			.map(XteaService::entryToKey)
+			.collect(Collectors.toList());
 	}
 
 	@RequestMapping("/{region}")
 	public XteaKey getRegion(@PathVariable int region)
 	{
-		XteaEntry entry;
-
-		try (Connection con = sql2o.open())
-		{
-			entry = con.createQuery("select region, time, rev, key1, key2, key3, key4 from xtea "
-				+ "where region = :region order by time desc limit 1")
-				.addParameter("region", region)
-				.executeAndFetchFirst(XteaEntry.class);
-		}
-
+		XteaEntry entry = latestKeys.get(region);
 		if (entry == null)
 		{
 			throw new NotFoundException();
@@ -205,16 +243,30 @@ public class XteaService
 			.toString();
 		int archiveNameHash = Djb2.hash(archiveName);
 
-		ArchiveEntry archiveEntry = cacheService.findArchiveForTypeAndName(cache, IndexType.MAPS, archiveNameHash);
-		if (archiveEntry == null)
+		long cacheKey = (long) cache.getId() << 32 | regionId;
+		byte[] data = archives.getIfPresent(cacheKey);
+		if (data == null)
 		{
-			throw new InternalServerErrorException("Unable to find archive for region");
+			ArchiveEntry archiveEntry = cacheService.findArchiveForTypeAndName(cache, IndexType.MAPS, archiveNameHash);
+			if (archiveEntry == null)
+			{
+				throw new InternalServerErrorException("Unable to find archive for region");
+			}
+
+			data = cacheService.getArchive(archiveEntry);
+			if (data == null)
+			{
+				throw new InternalServerErrorException("Unable to get archive data");
+			}
+
+			archives.put(cacheKey, data);
 		}
 
-		byte[] data = cacheService.getArchive(archiveEntry);
-		if (data == null)
+		// checking the header is enough unless the archive is uncompressed
+		Boolean valid = Container.checkKeys(data, keys);
+		if (valid != null)
 		{
-			throw new InternalServerErrorException("Unable to get archive data");
+			return valid;
 		}
 
 		try
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.account;
+
+import java.io.IOException;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import net.runelite.http.api.RuneLiteAPI;
+import net.runelite.http.service.account.beans.SessionEntry;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.mockito.Matchers.anyString;
+import org.mockito.Mock;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.Sql2o;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AccountServiceTest
+{
+	private final UUID uuid = UUID.randomUUID();
+
+	@Mock
+	private Sql2o sql2o;
+
+	@Mock
+	private Connection connection;
+
+	@Mock
+	private HttpServletRequest request;
+
+	@Mock
+	private HttpServletResponse response;
+
+	private Query query;
+
+	private AuthFilter authFilter;
+
+	private AccountService accountService;
+
+	@Before
+	public void before()
+	{
+		// return the query from its builder methods
+		query = mock(Query.class, invocation -> invocation.getMethod().getReturnType() == Query.class
+			? invocation.getMock()
+			: RETURNS_DEFAULTS.answer(invocation));
+
+		when(sql2o.open()).thenReturn(connection);
+		when(connection.createQuery(anyString())).thenReturn(query);
+		when(request.getHeader(RuneLiteAPI.RUNELITE_AUTH)).thenReturn(uuid.toString());
+
+		authFilter = new AuthFilter(sql2o);
+		accountService = new AccountService(sql2o, null, null, authFilter);
+	}
+
+	@Test
+	public void testLogoutInvalidatesSession() throws IOException
+	{
+		SessionEntry session = new SessionEntry();
+		session.setUuid(uuid);
+
+		// the session is deleted by the logout
+		when(query.executeAndFetchFirst(SessionEntry.class))
+			.thenReturn(session)
+			.thenReturn(null);
+
+		// the session is loaded once and then cached
+		assertNotNull(authFilter.handle(request, response));
+		assertNotNull(authFilter.handle(request, response));
+		verify(query, times(1)).executeAndFetchFirst(SessionEntry.class);
+
+		accountService.logout(request, response);
+
+		// the logged out session is loaded again, and is no longer valid
+		assertNull(authFilter.handle(request, response));
+		verify(query, times(2)).executeAndFetchFirst(SessionEntry.class);
+		verify(response).sendError(401, "Access denied");
+	}
+}
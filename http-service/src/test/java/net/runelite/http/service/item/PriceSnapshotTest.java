@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.item;
+
+import java.time.Instant;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class PriceSnapshotTest
+{
+	@Test
+	public void testUpdate()
+	{
+		PriceSnapshot snapshot = PriceSnapshot.EMPTY.update(Arrays.asList(
+			entry(4151, 100, 2000L, 10L),
+			entry(4151, 90, 1000L, 11L),
+			entry(995, 1, 1000L, 5L)
+		));
+
+		assertEquals(100, snapshot.get(4151).getPrice());
+		assertEquals(Instant.ofEpochMilli(2000L), snapshot.get(4151).getTime());
+		assertEquals(1, snapshot.get(995).getPrice());
+		assertNull(snapshot.get(996));
+		assertNull(snapshot.get(100_000));
+		assertEquals(2, snapshot.getAll().size());
+		assertEquals(Instant.ofEpochMilli(11L), snapshot.getWatermark());
+
+		PriceSnapshot updated = snapshot.update(Arrays.asList(
+			entry(4151, 110, 2000L, 20L),
+			entry(20000, 5, 3000L, 20L)
+		));
+
+		assertEquals(110, updated.get(4151).getPrice());
+		assertEquals(5, updated.get(20000).getPrice());
+		assertEquals(Instant.ofEpochMilli(20L), updated.getWatermark());
+
+		// the previous snapshot is unchanged
+		assertEquals(100, snapshot.get(4151).getPrice());
+		assertNull(snapshot.get(20000));
+	}
+
+	private static PriceEntry entry(int item, int price, long time, long fetched)
+	{
+		PriceEntry entry = new PriceEntry();
+		entry.setItem(item);
+		entry.setPrice(price);
+		entry.setTime(Instant.ofEpochMilli(time));
+		entry.setFetched_time(Instant.ofEpochMilli(fetched));
+		return entry;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.kc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class KillCountServiceTest
+{
+	@Test
+	public void testSetGet()
+	{
+		KillCountService service = new KillCountService(null, 2, false);
+
+		assertNull(service.getKc("Adam", "Zulrah"));
+
+		service.setKc("Adam", "Zulrah", 10);
+		service.setKc("Adam", "Zulrah", 11);
+		assertEquals(Integer.valueOf(11), service.getKc("Adam", "Zulrah"));
+
+		KillCountStats stats = service.getStats();
+		assertEquals(1, stats.getSize());
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+	}
+
+	@Test
+	public void testMaxEntries()
+	{
+		KillCountService service = new KillCountService(null, 2, false);
+
+		service.setKc("Adam", "Zulrah", 1);
+		service.setKc("Adam", "Vorkath", 2);
+		service.setKc("Adam", "Kraken", 3);
+
+		assertEquals(2, service.getStats().getSize());
+	}
+}
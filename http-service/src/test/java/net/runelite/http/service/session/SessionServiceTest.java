@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.session;
+
+import java.util.UUID;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.mockito.Matchers.anyString;
+import org.mockito.Mock;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.Sql2o;
+import org.sql2o.Sql2oException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SessionServiceTest
+{
+	@Mock
+	private Sql2o sql2o;
+
+	@Mock
+	private Connection connection;
+
+	private Query query;
+
+	private SessionService sessionService;
+
+	@Before
+	public void before()
+	{
+		// return the query from its builder methods
+		query = mock(Query.class, invocation -> invocation.getMethod().getReturnType() == Query.class
+			? invocation.getMock()
+			: RETURNS_DEFAULTS.answer(invocation));
+
+		when(sql2o.beginTransaction()).thenReturn(connection);
+		when(connection.createQuery(anyString())).thenReturn(query);
+
+		sessionService = new SessionService(sql2o);
+	}
+
+	@Test
+	public void testFlushLast()
+	{
+		sessionService.updateLast(UUID.randomUUID());
+		sessionService.updateLast(UUID.randomUUID());
+
+		sessionService.flushLast();
+
+		verify(query, times(2)).addToBatch();
+		verify(query).executeBatch();
+		verify(connection).commit(false);
+
+		// nothing is pending after a successful flush
+		sessionService.flushLast();
+		verify(sql2o, times(1)).beginTransaction();
+	}
+
+	@Test
+	public void testFlushLastFailure()
+	{
+		sessionService.updateLast(UUID.randomUUID());
+
+		doThrow(new Sql2oException("test"))
+			.doReturn(connection)
+			.when(query).executeBatch();
+
+		try
+		{
+			sessionService.flushLast();
+			fail("flush should fail");
+		}
+		catch (Sql2oException ex)
+		{
+			// expected
+		}
+		verify(connection, never()).commit(false);
+
+		// the ping is kept and written by the next flush
+		sessionService.flushLast();
+		verify(query, times(2)).addToBatch();
+		verify(connection).commit(false);
+	}
+}
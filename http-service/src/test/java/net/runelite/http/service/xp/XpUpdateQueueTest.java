@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.http.service.xp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import net.runelite.http.api.hiscore.HiscoreEndpoint;
+import net.runelite.http.api.hiscore.HiscoreResult;
+import net.runelite.http.service.hiscore.HiscoreResultBuilder;
+import net.runelite.http.service.hiscore.HiscoreService;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XpUpdateQueueTest
+{
+	private static final String RESPONSE = "654683,705,1304518\n"
+			+ "679419,50,107181\n"
+			+ "550667,48,85764\n"
+			+ "861497,50,101366\n"
+			+ "891591,48,87843\n"
+			+ "-1,1,4\n"
+			+ "840255,27,10073\n"
+			+ "1371912,10,1310\n"
+			+ "432193,56,199795\n"
+			+ "495638,56,198304\n"
+			+ "514466,37,27502\n"
+			+ "456981,54,159727\n"
+			+ "459159,49,93010\n"
+			+ "1028855,8,823\n"
+			+ "862906,29,12749\n"
+			+ "795020,31,16097\n"
+			+ "673591,5,495\n"
+			+ "352676,51,112259\n"
+			+ "428419,40,37235\n"
+			+ "461887,43,51971\n"
+			+ "598582,1,10\n"
+			+ "638177,1,0\n"
+			+ "516239,9,1000\n"
+			+ "492790,1,0\n"
+			+ "-1,-1\n"
+			+ "-1,-1\n"
+			+ "531,1432\n"
+			+ "-1,-1\n"
+			+ "-1,-1\n"
+			+ "-1,-1\n"
+			+ "-1,-1\n"
+			+ "-1,-1\n"
+			+ "254,92";
+
+	private final MockWebServer server = new MockWebServer();
+	private final CountDownLatch blockerLatch = new CountDownLatch(1);
+	private final BlockingQueue<List<XpUpdate>> batches = new LinkedBlockingQueue<>();
+
+	private XpUpdateQueue queue;
+
+	@Before
+	public void before() throws IOException
+	{
+		server.setDispatcher(new Dispatcher()
+		{
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException
+			{
+				if (request.getPath().contains("player=blocker"))
+				{
+					blockerLatch.await();
+				}
+				return new MockResponse().setBody(RESPONSE);
+			}
+		});
+		server.start();
+
+		HiscoreService hiscoreService = new HiscoreService()
+		{
+			@Override
+			public HiscoreResultBuilder lookupUsername(String username, HiscoreEndpoint endpoint) throws IOException
+			{
+				return lookupUsername(username, server.url("/"));
+			}
+		};
+
+		queue = new XpUpdateQueue(hiscoreService, batches::add, 1, 1000, 16, 100);
+	}
+
+	@After
+	public void after() throws IOException
+	{
+		blockerLatch.countDown();
+		queue.shutdown();
+		server.shutdown();
+	}
+
+	@Test
+	public void testLookupsCoalesced() throws Exception
+	{
+		assertTrue(queue.queueLookup("blocker"));
+		// wait for the only lookup thread to be busy with the blocker
+		assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+
+		for (int i = 0; i < 10; ++i)
+		{
+			assertTrue(queue.queueLookup(i % 2 == 0 ? "zezima" : "Zezima"));
+		}
+
+		blockerLatch.countDown();
+
+		int updates = 0;
+		List<XpUpdate> batch;
+		while ((batch = batches.poll(5, TimeUnit.SECONDS)) != null)
+		{
+			updates += batch.size();
+			if (updates == 2)
+			{
+				break;
+			}
+		}
+
+		assertEquals(2, updates);
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void testUpdatesBatched() throws Exception
+	{
+		HiscoreResult first = new HiscoreResult();
+		HiscoreResult second = new HiscoreResult();
+
+		assertTrue(queue.queueUpdate("zezima", first));
+		assertTrue(queue.queueUpdate("lynx titan", new HiscoreResult()));
+		assertTrue(queue.queueUpdate("ZEZIMA", second));
+
+		List<XpUpdate> batch = batches.poll(5, TimeUnit.SECONDS);
+		assertNotNull(batch);
+		assertEquals(2, batch.size());
+		assertEquals("ZEZIMA", batch.get(0).getUsername());
+		assertTrue(batch.get(0).getHiscoreResult() == second);
+		assertEquals("lynx titan", batch.get(1).getUsername());
+
+		assertNull(batches.poll(100, TimeUnit.MILLISECONDS));
+		assertEquals(0, server.getRequestCount());
+	}
+}
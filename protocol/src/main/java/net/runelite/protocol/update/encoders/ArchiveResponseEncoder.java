@@ -41,46 +41,66 @@ public class ArchiveResponseEncoder extends MessageToByteEncoder<ArchiveResponse
 	@Override
 	protected void encode(ChannelHandlerContext ctx, ArchiveResponsePacket archiveResponse, ByteBuf out) throws Exception
 	{
+		ByteBuf file = Unpooled.wrappedBuffer(archiveResponse.getData());
+		encode(archiveResponse.getIndex(), archiveResponse.getArchive(), file, out);
+	}
+
+	/**
+	 * Get the size of an encoded archive response, including the archive
+	 * header and the block separators
+	 *
+	 * @param length length of the packed archive data
+	 * @return encoded length
+	 */
+	public static int getEncodedLength(int length)
+	{
+		// the first block has the 3 byte archive header, and each
+		// subsequent block starts with a 1 byte separator
+		int remaining = length - (CHUNK_SIZE - 3);
+		int separators = remaining > 0 ? (remaining + CHUNK_SIZE - 2) / (CHUNK_SIZE - 1) : 0;
+		return 3 + length + separators;
+	}
+
+	/**
+	 * Write an archive response for the given archive data. The data is
+	 * the packed archive, starting with the compression type and length,
+	 * without the archive revision. The readable bytes of file are consumed.
+	 *
+	 * @param index index id
+	 * @param archive archive id
+	 * @param file packed archive data
+	 * @param out buffer to write the response to
+	 */
+	public static void encode(int index, int archive, ByteBuf file, ByteBuf out)
+	{
+		int length = file.readableBytes();
+
 		// archive file header
 		// 1 byte index
 		// 2 byte archive
-		out.writeByte(archiveResponse.getIndex());
-		out.writeShort(archiveResponse.getArchive());
+		out.writeByte(index);
+		out.writeShort(archive);
 
 		int pos = out.readableBytes();
 
 		// next is the compressed data which starts with compression
 		// type and length
-		ByteBuf file = Unpooled.wrappedBuffer(archiveResponse.getData());
 		// - 3 for the header
 		int chunkSize = Math.min(file.readableBytes(), CHUNK_SIZE - 3);
 
-		writeChunk(file.readBytes(chunkSize), out);
+		out.writeBytes(file, chunkSize);
 
 		while (file.isReadable())
 		{
 			out.writeByte(0xff);
 
 			chunkSize = Math.min(file.readableBytes(), CHUNK_SIZE - 1);
-			writeChunk(file.readBytes(chunkSize), out);
+			out.writeBytes(file, chunkSize);
 		}
 
 		int size = out.readableBytes() - pos;
 		logger.debug("Wrote index {} archive {} (size {}) in {} bytes",
-			archiveResponse.getIndex(), archiveResponse.getArchive(),
-			archiveResponse.getData().length, size);
-	}
-
-	private void writeChunk(ByteBuf chunk, ByteBuf out)
-	{
-		try
-		{
-			out.writeBytes(chunk);
-		}
-		finally
-		{
-			chunk.release();
-		}
+			index, archive, length, size);
 	}
 
 }
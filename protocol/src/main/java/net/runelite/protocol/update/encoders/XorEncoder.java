@@ -26,8 +26,15 @@ package net.runelite.protocol.update.encoders;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+/**
+ * Encrypts outgoing data with the xor key. Data is passed through untouched
+ * when there is no key, and otherwise encrypted into a new buffer. Written
+ * buffers are never modified, since they may be shared with other
+ * connections, such as cached responses.
+ */
 public class XorEncoder extends MessageToByteEncoder<ByteBuf>
 {
 	private byte key;
@@ -42,6 +49,19 @@ public class XorEncoder extends MessageToByteEncoder<ByteBuf>
 		this.key = key;
 	}
 
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception
+	{
+		if (key == 0 && msg instanceof ByteBuf)
+		{
+			// pass through without copying
+			ctx.write(msg, promise);
+			return;
+		}
+
+		super.write(ctx, msg, promise);
+	}
+
 	@Override
 	protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) throws Exception
 	{
@@ -51,10 +71,45 @@ public class XorEncoder extends MessageToByteEncoder<ByteBuf>
 			return;
 		}
 
+		long k = repeat(key);
+		while (msg.readableBytes() >= 8)
+		{
+			out.writeLong(msg.readLong() ^ k);
+		}
+
 		while (msg.isReadable())
 		{
 			out.writeByte(msg.readByte() ^ key);
 		}
 	}
 
+	/**
+	 * Xor a region of a buffer with the key in place, eight bytes at a time
+	 *
+	 * @param buf buffer
+	 * @param index start index
+	 * @param length number of bytes
+	 * @param key xor key
+	 */
+	public static void xor(ByteBuf buf, int index, int length, byte key)
+	{
+		long k = repeat(key);
+		int end = index + length;
+		int i = index;
+
+		for (; i + 8 <= end; i += 8)
+		{
+			buf.setLong(i, buf.getLong(i) ^ k);
+		}
+
+		for (; i < end; ++i)
+		{
+			buf.setByte(i, buf.getByte(i) ^ key);
+		}
+	}
+
+	private static long repeat(byte key)
+	{
+		return (key & 0xffL) * 0x0101010101010101L;
+	}
 }
@@ -73,4 +73,20 @@ public class ArchiveResponseEncoderTest
 		Assert.assertArrayEquals(data, decompressedData);
 	}
 
+	@Test
+	public void testEncodedLength() throws Exception
+	{
+		ArchiveResponseEncoder encoder = new ArchiveResponseEncoder();
+		for (int length : new int[]{0, 1, 508, 509, 510, 1020, 1021, 10_000})
+		{
+			ArchiveResponsePacket archiveResponse = new ArchiveResponsePacket();
+			archiveResponse.setData(new byte[length]);
+
+			ByteBuf buf = Unpooled.buffer(1024);
+			encoder.encode(null, archiveResponse, buf);
+
+			Assert.assertEquals(buf.readableBytes(), ArchiveResponseEncoder.getEncodedLength(length));
+		}
+	}
+
 }
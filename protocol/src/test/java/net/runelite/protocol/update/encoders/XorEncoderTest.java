@@ -26,6 +26,7 @@ package net.runelite.protocol.update.encoders;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -48,4 +49,31 @@ public class XorEncoderTest
 		Assert.assertEquals((Byte) (byte) 0xfe, (Byte) encoded);
 	}
 
+	@Test
+	public void testXor() throws Exception
+	{
+		byte[] data = new byte[1021];
+		new Random(42L).nextBytes(data);
+
+		ByteBuf buf = Unpooled.buffer(data.length + 3);
+		buf.writeBytes(new byte[3]);
+		buf.writeBytes(data);
+		buf.skipBytes(3);
+
+		XorEncoder encoder = new XorEncoder();
+		encoder.setKey((byte) 0x9c);
+
+		ByteBuf out = Unpooled.buffer(data.length);
+		encoder.encode(null, buf.duplicate(), out);
+
+		XorEncoder.xor(buf, buf.readerIndex(), buf.readableBytes(), (byte) 0x9c);
+
+		for (int i = 0; i < data.length; ++i)
+		{
+			byte expected = (byte) (data[i] ^ 0x9c);
+			Assert.assertEquals(expected, buf.getByte(3 + i));
+			Assert.assertEquals(expected, out.getByte(i));
+		}
+	}
+
 }
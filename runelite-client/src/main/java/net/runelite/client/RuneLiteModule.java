@@ -25,7 +25,6 @@
 package net.runelite.client;
 
 import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.SubscriberExceptionContext;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.name.Names;
@@ -34,7 +33,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import javax.annotation.Nullable;
 import javax.inject.Singleton;
-import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.hooks.Callbacks;
 import net.runelite.client.account.SessionManager;
@@ -49,6 +47,7 @@ import net.runelite.client.plugins.PluginManager;
 import net.runelite.client.rs.ClientUpdateCheckMode;
 import net.runelite.client.rs.ClientLoader;
 import net.runelite.client.task.Scheduler;
+import net.runelite.client.util.CompiledEventBus;
 import net.runelite.client.util.DeferredEventBus;
 import net.runelite.client.util.QueryRunner;
 import org.slf4j.Logger;
@@ -56,7 +55,6 @@ import org.slf4j.LoggerFactory;
 import net.runelite.http.api.RuneLiteAPI;
 import okhttp3.OkHttpClient;
 
-@Slf4j
 public class RuneLiteModule extends AbstractModule
 {
 	private final ClientUpdateCheckMode updateCheckMode;
@@ -127,11 +125,6 @@ public class RuneLiteModule extends AbstractModule
 	@Singleton
 	EventBus provideEventBus()
 	{
-		return new EventBus(RuneLiteModule::eventExceptionHandler);
-	}
-
-	private static void eventExceptionHandler(Throwable exception, SubscriberExceptionContext context)
-	{
-		log.warn("uncaught exception in event subscriber", exception);
+		return new CompiledEventBus();
 	}
 }
@@ -24,30 +24,53 @@
  */
 package net.runelite.client.config;
 
+import java.awt.Color;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 class ConfigInvocationHandler implements InvocationHandler
 {
 	private final ConfigManager manager;
+	private final Map<Method, ConfigMethod> methods = new ConcurrentHashMap<>();
+	// incremented whenever the configuration changes, invalidating cached values
+	private final AtomicInteger generation = new AtomicInteger();
 
 	public ConfigInvocationHandler(ConfigManager manager)
 	{
 		this.manager = manager;
 	}
 
+	/**
+	 * Invalidate all cached configuration values. This must be called after
+	 * the configuration changes and before the change is posted.
+	 */
+	void invalidate()
+	{
+		generation.incrementAndGet();
+	}
+
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
 	{
-		Class<?> iface = proxy.getClass().getInterfaces()[0];
+		ConfigMethod configMethod = methods.get(method);
+		if (configMethod == null)
+		{
+			Class<?> iface = proxy.getClass().getInterfaces()[0];
+			configMethod = methods.computeIfAbsent(method, m -> new ConfigMethod(iface, m));
+		}
 
-		ConfigGroup group = iface.getAnnotation(ConfigGroup.class);
-		ConfigItem item = method.getAnnotation(ConfigItem.class);
+		ConfigGroup group = configMethod.group;
+		ConfigItem item = configMethod.item;
 
 		if (group == null)
 		{
@@ -64,34 +87,21 @@ class ConfigInvocationHandler implements InvocationHandler
 		if (args == null)
 		{
 			// Getting configuration item
-			String value = manager.getConfiguration(group.value(), item.keyName());
-
-			if (value == null)
+			int gen = generation.get();
+			CachedValue cached = configMethod.cached;
+			if (cached != null && cached.generation == gen)
 			{
-				if (method.isDefault())
-				{
-					return callDefaultMethod(proxy, method, null);
-				}
-
-				return null;
+				return cached.value;
 			}
 
-			// Convert value to return type
-			Class<?> returnType = method.getReturnType();
-			
-			try
-			{
-				return ConfigManager.stringToObject(value, returnType);
-			}
-			catch (Exception e)
+			Object value = getValue(proxy, configMethod);
+			if (configMethod.cacheable)
 			{
-				log.warn("Unable to unmarshal {}.{} ", group.value(), item.keyName(), e);
-				if (method.isDefault())
-				{
-					return callDefaultMethod(proxy, method, null);
-				}
-				return null;
+				// if the configuration changed while loading the value, this is
+				// already stale and will be reloaded on the next call
+				configMethod.cached = new CachedValue(gen, value);
 			}
+			return value;
 		}
 		else
 		{
@@ -115,7 +125,7 @@ class ConfigInvocationHandler implements InvocationHandler
 
 			if (method.isDefault())
 			{
-				Object defaultValue = callDefaultMethod(proxy, method, args);
+				Object defaultValue = configMethod.callDefaultMethod(proxy, args);
 
 				if (Objects.equals(newValue, defaultValue))
 				{
@@ -138,7 +148,45 @@ class ConfigInvocationHandler implements InvocationHandler
 		}
 	}
 
+	private Object getValue(Object proxy, ConfigMethod configMethod) throws Throwable
+	{
+		Method method = configMethod.method;
+		String value = manager.getConfiguration(configMethod.group.value(), configMethod.item.keyName());
+
+		if (value == null)
+		{
+			if (method.isDefault())
+			{
+				return configMethod.callDefaultMethod(proxy, null);
+			}
+
+			return null;
+		}
+
+		// Convert value to return type
+		try
+		{
+			return ConfigManager.stringToObject(value, method.getReturnType());
+		}
+		catch (Exception e)
+		{
+			log.warn("Unable to unmarshal {}.{} ", configMethod.group.value(), configMethod.item.keyName(), e);
+			if (method.isDefault())
+			{
+				return configMethod.callDefaultMethod(proxy, null);
+			}
+			return null;
+		}
+	}
+
 	static Object callDefaultMethod(Object proxy, Method method, Object[] args) throws Throwable
+	{
+		return findDefaultMethod(method)
+			.bindTo(proxy)
+			.invokeWithArguments(args);
+	}
+
+	private static MethodHandle findDefaultMethod(Method method) throws ReflectiveOperationException
 	{
 		// Call the default method implementation - https://rmannibucau.wordpress.com/2014/03/27/java-8-default-interface-methods-and-jdk-dynamic-proxies/
 		Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
@@ -146,8 +194,62 @@ class ConfigInvocationHandler implements InvocationHandler
 
 		Class<?> declaringClass = method.getDeclaringClass();
 		return constructor.newInstance(declaringClass, MethodHandles.Lookup.PUBLIC | MethodHandles.Lookup.PRIVATE)
-			.unreflectSpecial(method, declaringClass)
-			.bindTo(proxy)
-			.invokeWithArguments(args);
+			.unreflectSpecial(method, declaringClass);
+	}
+
+	/**
+	 * Whether values of a type can be shared between callers
+	 */
+	private static boolean isImmutable(Class<?> type)
+	{
+		return type.isPrimitive()
+			|| type.isEnum()
+			|| type == String.class
+			|| type == Boolean.class
+			|| type == Integer.class
+			|| type == Color.class
+			|| type == Instant.class
+			|| type == Keybind.class;
+	}
+
+	private static class ConfigMethod
+	{
+		private final Method method;
+		private final ConfigGroup group;
+		private final ConfigItem item;
+		private final boolean cacheable;
+		private volatile MethodHandle defaultMethod;
+		private volatile CachedValue cached;
+
+		ConfigMethod(Class<?> iface, Method method)
+		{
+			this.method = method;
+			this.group = iface.getAnnotation(ConfigGroup.class);
+			this.item = method.getAnnotation(ConfigItem.class);
+			this.cacheable = method.getParameterCount() == 0 && isImmutable(method.getReturnType());
+		}
+
+		Object callDefaultMethod(Object proxy, Object[] args) throws Throwable
+		{
+			MethodHandle handle = defaultMethod;
+			if (handle == null)
+			{
+				defaultMethod = handle = findDefaultMethod(method);
+			}
+
+			return handle.bindTo(proxy).invokeWithArguments(args);
+		}
+	}
+
+	private static class CachedValue
+	{
+		private final int generation;
+		private final Object value;
+
+		CachedValue(int generation, Object value)
+		{
+			this.generation = generation;
+			this.value = value;
+		}
 	}
 }
@@ -39,14 +39,19 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -56,6 +61,7 @@ import net.runelite.client.RuneLite;
 import net.runelite.client.account.AccountSession;
 import net.runelite.http.api.config.ConfigClient;
 import net.runelite.http.api.config.ConfigEntry;
+import net.runelite.http.api.config.ConfigPatch;
 import net.runelite.http.api.config.Configuration;
 
 @Singleton
@@ -63,6 +69,7 @@ import net.runelite.http.api.config.Configuration;
 public class ConfigManager
 {
 	private static final String SETTINGS_FILE_NAME = "settings.properties";
+	private static final long SAVE_DELAY_MS = 500;
 
 	@Inject
 	EventBus eventBus;
@@ -76,6 +83,9 @@ public class ConfigManager
 
 	private final ConfigInvocationHandler handler = new ConfigInvocationHandler(this);
 	private final Properties properties = new Properties();
+	// keys changed since the configuration was last saved, and their values before the change
+	private final Map<String, String> pendingChanges = new HashMap<>();
+	private boolean saveQueued;
 
 	public ConfigManager()
 	{
@@ -84,6 +94,9 @@ public class ConfigManager
 
 	public final void switchSession(AccountSession session)
 	{
+		// save changes to the previous profile
+		sendConfig();
+
 		if (session == null)
 		{
 			this.session = null;
@@ -143,6 +156,7 @@ public class ConfigManager
 		}
 
 		properties.clear();
+		handler.invalidate();
 
 		for (ConfigEntry entry : configuration.getConfig())
 		{
@@ -152,6 +166,7 @@ public class ConfigManager
 			final String key = split[1];
 			final String value = entry.getValue();
 			final String oldValue = (String) properties.setProperty(entry.getKey(), value);
+			handler.invalidate();
 
 			ConfigChanged configChanged = new ConfigChanged();
 			configChanged.setGroup(groupName);
@@ -190,6 +205,8 @@ public class ConfigManager
 			log.warn("Unable to load settings", ex);
 		}
 
+		handler.invalidate();
+
 		try
 		{
 			Map<String, String> copy = (Map) ImmutableMap.copyOf(properties);
@@ -219,13 +236,116 @@ public class ConfigManager
 		}
 	}
 
+	private void queueSave(String key, String oldValue)
+	{
+		synchronized (pendingChanges)
+		{
+			if (!pendingChanges.containsKey(key))
+			{
+				pendingChanges.put(key, oldValue);
+			}
+
+			if (!saveQueued)
+			{
+				saveQueued = true;
+				executor.schedule(this::sendConfig, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Save changes made since the last save to disk, and send them to the
+	 * config service
+	 */
+	public void sendConfig()
+	{
+		Map<String, String> changes;
+		synchronized (pendingChanges)
+		{
+			saveQueued = false;
+			if (pendingChanges.isEmpty())
+			{
+				return;
+			}
+
+			changes = new HashMap<>(pendingChanges);
+			pendingChanges.clear();
+		}
+
+		ConfigPatch patch = new ConfigPatch();
+		for (Map.Entry<String, String> entry : changes.entrySet())
+		{
+			String key = entry.getKey();
+			String value = properties.getProperty(key);
+
+			if (Objects.equals(value, entry.getValue()))
+			{
+				// changed back to what it was
+				continue;
+			}
+
+			if (value == null)
+			{
+				patch.getUnset().add(key);
+			}
+			else
+			{
+				patch.getEdit().put(key, value);
+			}
+		}
+
+		if (patch.isEmpty())
+		{
+			return;
+		}
+
+		if (client != null)
+		{
+			client.patch(patch);
+		}
+
+		try
+		{
+			saveToFile();
+		}
+		catch (IOException ex)
+		{
+			log.warn("unable to save configuration file", ex);
+		}
+	}
+
 	private synchronized void saveToFile() throws IOException
 	{
-		propertiesFile.getParentFile().mkdirs();
+		File file = propertiesFile;
+		File parent = file.getParentFile();
+		parent.mkdirs();
 
-		try (FileOutputStream out = new FileOutputStream(propertiesFile))
+		Properties copy = (Properties) properties.clone();
+
+		// write to a temporary file and move it into place, so the
+		// configuration is never left partially written
+		File tempFile = File.createTempFile(SETTINGS_FILE_NAME, ".tmp", parent);
+		try
+		{
+			try (FileOutputStream out = new FileOutputStream(tempFile))
+			{
+				copy.store(out, "RuneLite configuration");
+				out.getChannel().force(true);
+			}
+
+			try
+			{
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException ex)
+			{
+				log.debug("atomic move not supported, replacing configuration file", ex);
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
 		{
-			properties.store(out, "RuneLite configuration");
+			tempFile.delete();
 		}
 	}
 
@@ -271,24 +391,9 @@ public class ConfigManager
 		log.debug("Setting configuration value for {}.{} to {}", groupName, key, value);
 
 		String oldValue = (String) properties.setProperty(groupName + "." + key, value);
+		handler.invalidate();
 
-		if (client != null)
-		{
-			client.set(groupName + "." + key, value);
-		}
-
-		Runnable task = () ->
-		{
-			try
-			{
-				saveToFile();
-			}
-			catch (IOException ex)
-			{
-				log.warn("unable to save configuration file", ex);
-			}
-		};
-		executor.execute(task);
+		queueSave(groupName + "." + key, oldValue);
 
 		ConfigChanged configChanged = new ConfigChanged();
 		configChanged.setGroup(groupName);
@@ -309,24 +414,9 @@ public class ConfigManager
 		log.debug("Unsetting configuration value for {}.{}", groupName, key);
 
 		String oldValue = (String) properties.remove(groupName + "." + key);
+		handler.invalidate();
 
-		if (client != null)
-		{
-			client.unset(groupName + "." + key);
-		}
-
-		Runnable task = () ->
-		{
-			try
-			{
-				saveToFile();
-			}
-			catch (IOException ex)
-			{
-				log.warn("unable to save configuration file", ex);
-			}
-		};
-		executor.execute(task);
+		queueSave(groupName + "." + key, oldValue);
 
 		ConfigChanged configChanged = new ConfigChanged();
 		configChanged.setGroup(groupName);
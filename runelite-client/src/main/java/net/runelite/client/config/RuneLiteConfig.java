@@ -239,4 +239,15 @@ public interface RuneLiteConfig extends Config
 	{
 		return 35;
 	}
+
+	@ConfigItem(
+		keyName = "overlayRenderBudget",
+		name = "Overlay render budget (us)",
+		description = "Render overlays which take longer than this many microseconds per frame less often, 0 to disable",
+		position = 40
+	)
+	default int overlayRenderBudget()
+	{
+		return 0;
+	}
 }
\ No newline at end of file
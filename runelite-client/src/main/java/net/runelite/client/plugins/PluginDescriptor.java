@@ -58,4 +58,10 @@ public @interface PluginDescriptor
 	boolean developerPlugin() default false;
 
 	boolean loadWhenOutdated() default false;
+
+	/**
+	 * Whether the plugin waits until the player first logs in to start,
+	 * instead of starting with the client
+	 */
+	boolean lazyStart() default false;
 }
@@ -25,6 +25,7 @@
 package net.runelite.client.plugins;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
@@ -33,8 +34,10 @@ import com.google.common.graph.Graph;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.Graphs;
 import com.google.common.graph.MutableGraph;
+import com.google.common.io.Resources;
 import com.google.common.reflect.ClassPath;
 import com.google.common.reflect.ClassPath.ClassInfo;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Binder;
 import com.google.inject.CreationException;
 import com.google.inject.Injector;
@@ -43,14 +46,26 @@ import com.google.inject.Module;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -59,6 +74,8 @@ import javax.inject.Singleton;
 import javax.swing.SwingUtilities;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.GameState;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.SessionClose;
 import net.runelite.api.events.SessionOpen;
 import net.runelite.client.RuneLite;
@@ -81,6 +98,11 @@ public class PluginManager
 	 */
 	private static final String PLUGIN_PACKAGE = "net.runelite.client.plugins";
 
+	/**
+	 * Index of plugin classes written by the plugin processor at build time
+	 */
+	private static final String PLUGIN_INDEX = "META-INF/runelite-plugins";
+
 	private final boolean developerMode;
 	private final EventBus eventBus;
 	private final Scheduler scheduler;
@@ -89,6 +111,7 @@ public class PluginManager
 	private final Provider<SceneTileManager> sceneTileManager;
 	private final List<Plugin> plugins = new CopyOnWriteArrayList<>();
 	private final List<Plugin> activePlugins = new CopyOnWriteArrayList<>();
+	private final List<Plugin> lazyPlugins = new CopyOnWriteArrayList<>();
 	private final String runeliteGroupName = RuneLiteConfig.class
 			.getAnnotation(ConfigGroup.class).value();
 
@@ -125,10 +148,38 @@ public class PluginManager
 		refreshPlugins();
 	}
 
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		if (event.getGameState() != GameState.LOGGED_IN || lazyPlugins.isEmpty())
+		{
+			return;
+		}
+
+		// start plugins which were waiting for first use
+		for (Plugin plugin : lazyPlugins)
+		{
+			lazyPlugins.remove(plugin);
+			executor.submit(() ->
+			{
+				try
+				{
+					startPlugin(plugin);
+				}
+				catch (PluginInstantiationException ex)
+				{
+					log.warn("Unable to start plugin {}. {}", plugin.getClass().getSimpleName(), ex);
+					plugins.remove(plugin);
+				}
+			});
+		}
+	}
+
 	private void refreshPlugins()
 	{
 		loadDefaultPluginConfiguration();
-		getPlugins()
+		getPlugins().stream()
+			.filter(plugin -> !lazyPlugins.contains(plugin))
 			.forEach(plugin -> executor.submit(() ->
 			{
 				try
@@ -199,9 +250,17 @@ public class PluginManager
 
 	public void startCorePlugins()
 	{
+		long start = System.nanoTime();
 		List<Plugin> scannedPlugins = new ArrayList<>(plugins);
 		for (Plugin plugin : scannedPlugins)
 		{
+			PluginDescriptor pluginDescriptor = plugin.getClass().getAnnotation(PluginDescriptor.class);
+			if (pluginDescriptor != null && pluginDescriptor.lazyStart())
+			{
+				lazyPlugins.add(plugin);
+				continue;
+			}
+
 			try
 			{
 				startPlugin(plugin);
@@ -212,6 +271,9 @@ public class PluginManager
 				plugins.remove(plugin);
 			}
 		}
+
+		log.info("Started {} plugins in {}ms, {} deferred until login", activePlugins.size(),
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lazyPlugins.size());
 	}
 
 	List<Plugin> scanAndInstantiate(ClassLoader classLoader, String packageName) throws IOException
@@ -220,14 +282,10 @@ public class PluginManager
 			.directed()
 			.build();
 
-		List<Plugin> scannedPlugins = new ArrayList<>();
-		ClassPath classPath = ClassPath.from(classLoader);
+		long start = System.nanoTime();
 
-		ImmutableSet<ClassInfo> classes = packageName == null ? classPath.getAllClasses()
-			: classPath.getTopLevelClassesRecursive(packageName);
-		for (ClassInfo classInfo : classes)
+		for (Class<?> clazz : findPluginClasses(classLoader, packageName))
 		{
-			Class<?> clazz = classInfo.load();
 			PluginDescriptor pluginDescriptor = clazz.getAnnotation(PluginDescriptor.class);
 
 			if (pluginDescriptor == null)
@@ -280,23 +338,136 @@ public class PluginManager
 		List<Class<? extends Plugin>> sortedPlugins = topologicalSort(graph);
 		sortedPlugins = Lists.reverse(sortedPlugins);
 
-		for (Class<? extends Plugin> pluginClazz : sortedPlugins)
+		List<Plugin> scannedPlugins = instantiatePlugins(sortedPlugins);
+
+		log.info("Loaded {} plugins in {}ms", scannedPlugins.size(),
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return scannedPlugins;
+	}
+
+	/**
+	 * Find plugin classes from the plugin index, or by scanning the classpath
+	 * if there is no index
+	 */
+	private List<Class<?>> findPluginClasses(ClassLoader classLoader, String packageName) throws IOException
+	{
+		Enumeration<URL> indexes = classLoader.getResources(PLUGIN_INDEX);
+		List<Class<?>> classes = new ArrayList<>();
+
+		if (indexes.hasMoreElements())
 		{
-			Plugin plugin;
-			try
+			Set<String> names = new LinkedHashSet<>();
+			while (indexes.hasMoreElements())
 			{
-				plugin = instantiate(scannedPlugins, (Class<Plugin>) pluginClazz);
+				names.addAll(Resources.readLines(indexes.nextElement(), StandardCharsets.UTF_8));
 			}
-			catch (PluginInstantiationException ex)
+
+			for (String name : names)
 			{
-				log.warn("Error instantiating plugin!", ex);
-				continue;
+				if (name.isEmpty() || (packageName != null && !name.startsWith(packageName + ".")))
+				{
+					continue;
+				}
+
+				try
+				{
+					classes.add(Class.forName(name, false, classLoader));
+				}
+				catch (ClassNotFoundException ex)
+				{
+					// left over in the index from an incremental build
+					log.debug("Plugin {} from plugin index does not exist", name);
+				}
 			}
 
-			scannedPlugins.add(plugin);
+			return classes;
 		}
 
-		return scannedPlugins;
+		log.debug("No plugin index, scanning classpath for plugins");
+
+		ClassPath classPath = ClassPath.from(classLoader);
+		ImmutableSet<ClassInfo> classInfos = packageName == null ? classPath.getAllClasses()
+			: classPath.getTopLevelClassesRecursive(packageName);
+		for (ClassInfo classInfo : classInfos)
+		{
+			classes.add(classInfo.load());
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Instantiate plugins in parallel. Each plugin is instantiated once its
+	 * dependencies have been.
+	 *
+	 * @param sortedPlugins plugin classes, sorted so dependencies come first
+	 * @return the plugins, in the same order
+	 */
+	private List<Plugin> instantiatePlugins(List<Class<? extends Plugin>> sortedPlugins)
+	{
+		ExecutorService loader = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+			new ThreadFactoryBuilder()
+				.setNameFormat("plugin-loader-%d")
+				.setDaemon(true)
+				.build());
+
+		try
+		{
+			Map<Class<? extends Plugin>, CompletableFuture<Plugin>> futures = new LinkedHashMap<>();
+			for (Class<? extends Plugin> pluginClazz : sortedPlugins)
+			{
+				List<CompletableFuture<Plugin>> dependencies = new ArrayList<>();
+				for (PluginDependency pluginDependency : pluginClazz.getAnnotationsByType(PluginDependency.class))
+				{
+					dependencies.add(futures.get(pluginDependency.value()));
+				}
+
+				CompletableFuture<Plugin> future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+					.thenApplyAsync(v ->
+					{
+						List<Plugin> deps = dependencies.stream()
+							.map(CompletableFuture::join)
+							.filter(Objects::nonNull)
+							.collect(Collectors.toList());
+
+						try
+						{
+							return instantiate(deps, (Class<Plugin>) pluginClazz);
+						}
+						catch (PluginInstantiationException ex)
+						{
+							log.warn("Error instantiating plugin!", ex);
+							return null;
+						}
+					}, loader);
+				futures.put(pluginClazz, future);
+			}
+
+			List<Plugin> scannedPlugins = new ArrayList<>();
+			for (CompletableFuture<Plugin> future : futures.values())
+			{
+				Plugin plugin;
+				try
+				{
+					plugin = future.join();
+				}
+				catch (CompletionException ex)
+				{
+					Throwables.throwIfUnchecked(ex.getCause());
+					throw ex;
+				}
+
+				if (plugin != null)
+				{
+					scannedPlugins.add(plugin);
+				}
+			}
+			return scannedPlugins;
+		}
+		finally
+		{
+			loader.shutdown();
+		}
 	}
 
 	public synchronized boolean startPlugin(Plugin plugin) throws PluginInstantiationException
@@ -307,7 +478,9 @@ public class PluginManager
 		}
 
 		activePlugins.add(plugin);
+		lazyPlugins.remove(plugin);
 
+		long start = System.nanoTime();
 		try
 		{
 			// plugins always start in the event thread
@@ -323,7 +496,8 @@ public class PluginManager
 				}
 			});
 
-			log.debug("Plugin {} is now running", plugin.getClass().getSimpleName());
+			log.debug("Plugin {} is now running, started in {}ms", plugin.getClass().getSimpleName(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 			if (!isOutdated && sceneTileManager != null)
 			{
 				final SceneTileManager sceneTileManager = this.sceneTileManager.get();
@@ -406,6 +580,7 @@ public class PluginManager
 
 	private Plugin instantiate(List<Plugin> scannedPlugins, Class<Plugin> clazz) throws PluginInstantiationException
 	{
+		long start = System.nanoTime();
 		PluginDependency[] pluginDependencies = clazz.getAnnotationsByType(PluginDependency.class);
 		List<Plugin> deps = new ArrayList<>();
 		for (PluginDependency pluginDependency : pluginDependencies)
@@ -453,7 +628,8 @@ public class PluginManager
 			throw new PluginInstantiationException(ex);
 		}
 
-		log.debug("Loaded plugin {}", clazz.getSimpleName());
+		log.debug("Loaded plugin {} in {}ms", clazz.getSimpleName(),
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 		return plugin;
 	}
 
@@ -41,15 +41,17 @@ public class DevToolsPanel extends PluginPanel
 
 	private final WidgetInspector widgetInspector;
 	private final VarInspector varInspector;
+	private final OverlayProfilerFrame overlayProfiler;
 
 	@Inject
-	public DevToolsPanel(Client client, DevToolsPlugin plugin, WidgetInspector widgetInspector, VarInspector varInspector)
+	public DevToolsPanel(Client client, DevToolsPlugin plugin, WidgetInspector widgetInspector, VarInspector varInspector, OverlayProfilerFrame overlayProfiler)
 	{
 		super();
 		this.client = client;
 		this.plugin = plugin;
 		this.widgetInspector = widgetInspector;
 		this.varInspector = varInspector;
+		this.overlayProfiler = overlayProfiler;
 
 		setBackground(ColorScheme.DARK_GRAY_COLOR);
 
@@ -158,6 +160,13 @@ public class DevToolsPanel extends PluginPanel
 		});
 		container.add(varInspectorBtn);
 
+		final JButton overlayProfilerBtn = new JButton("Overlay Profiler");
+		overlayProfilerBtn.addActionListener(e ->
+		{
+			overlayProfiler.open();
+		});
+		container.add(overlayProfilerBtn);
+
 		final JButton chunkBordersBtn = new JButton("Chunk borders");
 		chunkBordersBtn.addActionListener(e ->
 		{
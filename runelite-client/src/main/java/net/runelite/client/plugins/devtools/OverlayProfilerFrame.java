@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.devtools;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.ui.ClientUI;
+import net.runelite.client.ui.overlay.OverlayProfiler;
+import net.runelite.client.ui.overlay.RenderStats;
+
+@Slf4j
+class OverlayProfilerFrame extends JFrame
+{
+	private static final int REFRESH_INTERVAL_MS = 1000;
+
+	private static final String[] COLUMNS =
+	{
+		"Overlay", "Layer", "Count", "Mean (us)", "P95 (us)", "Max (us)", "Allocated (KB)", "Skipped"
+	};
+
+	private final OverlayProfiler profiler;
+	private final StatsTableModel model = new StatsTableModel();
+	private final Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+
+	@Inject
+	OverlayProfilerFrame(OverlayProfiler profiler)
+	{
+		this.profiler = profiler;
+
+		setTitle("RuneLite Overlay Profiler");
+		setIconImage(ClientUI.ICON);
+
+		setLayout(new BorderLayout());
+
+		setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+		addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowClosing(WindowEvent e)
+			{
+				close();
+			}
+		});
+
+		final JTable table = new JTable(model);
+		table.setAutoCreateRowSorter(true);
+		table.getColumnModel().getColumn(0).setPreferredWidth(300);
+
+		final JScrollPane scrollPane = new JScrollPane(table);
+		scrollPane.setPreferredSize(new Dimension(800, 400));
+		add(scrollPane, BorderLayout.CENTER);
+
+		final JPanel buttons = new JPanel();
+		buttons.setLayout(new FlowLayout());
+
+		final JButton resetBtn = new JButton("Reset");
+		resetBtn.addActionListener(e ->
+		{
+			profiler.reset();
+			refresh();
+		});
+		buttons.add(resetBtn);
+
+		final JButton exportBtn = new JButton("Export CSV");
+		exportBtn.addActionListener(e -> export());
+		buttons.add(exportBtn);
+
+		add(buttons, BorderLayout.SOUTH);
+
+		pack();
+	}
+
+	public void open()
+	{
+		profiler.setEnabled(true);
+		refreshTimer.start();
+		refresh();
+		setVisible(true);
+		toFront();
+		repaint();
+	}
+
+	public void close()
+	{
+		refreshTimer.stop();
+		profiler.setEnabled(false);
+		setVisible(false);
+	}
+
+	private void refresh()
+	{
+		model.setStats(profiler.getStats());
+	}
+
+	private void export()
+	{
+		final JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files", "csv"));
+		fileChooser.setSelectedFile(new File("overlays.csv"));
+
+		if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+		{
+			return;
+		}
+
+		final File file = fileChooser.getSelectedFile();
+		try (Writer writer = new FileWriter(file))
+		{
+			profiler.writeCsv(writer);
+		}
+		catch (IOException ex)
+		{
+			log.warn("unable to export overlay stats", ex);
+			JOptionPane.showMessageDialog(this, "Unable to export overlay stats: " + ex.getMessage(),
+				"Overlay Profiler", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
+	private static class StatsTableModel extends AbstractTableModel
+	{
+		private List<RenderStats> stats = new ArrayList<>();
+
+		void setStats(List<RenderStats> stats)
+		{
+			this.stats = stats;
+			fireTableDataChanged();
+		}
+
+		@Override
+		public String getColumnName(int col)
+		{
+			return COLUMNS[col];
+		}
+
+		@Override
+		public Class<?> getColumnClass(int col)
+		{
+			return col < 2 ? String.class : Long.class;
+		}
+
+		@Override
+		public int getColumnCount()
+		{
+			return COLUMNS.length;
+		}
+
+		@Override
+		public int getRowCount()
+		{
+			return stats.size();
+		}
+
+		@Override
+		public Object getValueAt(int rowIndex, int columnIndex)
+		{
+			final RenderStats s = stats.get(rowIndex);
+			switch (columnIndex)
+			{
+				case 0:
+					return s.getName();
+				case 1:
+					return s.getLayer().name();
+				case 2:
+					return s.getCount();
+				case 3:
+					return micros(s.getMeanNanos());
+				case 4:
+					return micros(s.getPercentileNanos(0.95));
+				case 5:
+					return micros(s.getMaxNanos());
+				case 6:
+					return s.getAllocatedBytes() < 0 ? null : s.getAllocatedBytes() / 1024;
+				case 7:
+					return s.getSkipped();
+				default:
+					return null;
+			}
+		}
+
+		private static long micros(long nanos)
+		{
+			return TimeUnit.NANOSECONDS.toMicros(nanos);
+		}
+	}
+}
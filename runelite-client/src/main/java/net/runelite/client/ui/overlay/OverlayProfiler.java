@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.ui.overlay;
+
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records how long each overlay and overlay layer takes to render, and
+ * decides which overlays to skip when a render budget is set.
+ */
+@Singleton
+@Slf4j
+public class OverlayProfiler
+{
+	/**
+	 * Overlays over the render budget are rendered once every this many frames
+	 */
+	static final int THROTTLE_INTERVAL = 8;
+
+	private static final String[] CSV_HEADER =
+	{
+		"type", "name", "layer", "count", "total_us", "mean_us", "p50_us", "p95_us", "p99_us", "max_us", "allocated_bytes", "skipped"
+	};
+
+	private final com.sun.management.ThreadMXBean threadBean;
+	// weakly keyed, so removed overlays and their plugins can still be unloaded
+	private final Map<Overlay, RenderStats> overlayStats = CacheBuilder.newBuilder()
+		.weakKeys()
+		.<Overlay, RenderStats>build()
+		.asMap();
+	private final Map<OverlayLayer, RenderStats> layerStats = new EnumMap<>(OverlayLayer.class);
+
+	private volatile boolean enabled;
+
+	public OverlayProfiler()
+	{
+		threadBean = findThreadBean();
+
+		for (OverlayLayer layer : OverlayLayer.values())
+		{
+			layerStats.put(layer, new RenderStats(layer.name(), "layer", layer));
+		}
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Enable or disable profiling. Overlay timings are still recorded while
+	 * disabled if a render budget is set, for deciding which overlays to skip.
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		if (enabled && threadBean != null && !threadBean.isThreadAllocatedMemoryEnabled())
+		{
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Check if allocations made by overlays can be measured by this JVM
+	 */
+	public boolean isAllocationSupported()
+	{
+		return threadBean != null;
+	}
+
+	/**
+	 * Get the number of bytes allocated by the current thread, or -1 if
+	 * allocations are not being profiled
+	 */
+	long getAllocatedBytes()
+	{
+		if (!enabled || threadBean == null)
+		{
+			return -1;
+		}
+
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Check if an overlay should be rendered this frame under the render budget
+	 *
+	 * @param overlay overlay
+	 * @param budgetNanos render budget per overlay per frame
+	 * @return true if the overlay should be rendered
+	 */
+	boolean shouldRender(Overlay overlay, long budgetNanos)
+	{
+		final RenderStats stats = statsFor(overlay);
+		final boolean wasThrottled = stats.isThrottled();
+		final boolean render = stats.shouldRender(budgetNanos, THROTTLE_INTERVAL);
+
+		if (stats.isThrottled() != wasThrottled)
+		{
+			if (wasThrottled)
+			{
+				log.debug("Overlay {} is back under the render budget", overlay.getClass().getName());
+			}
+			else
+			{
+				log.info("Overlay {} is over the render budget of {}us, throttling",
+					overlay.getClass().getName(), TimeUnit.NANOSECONDS.toMicros(budgetNanos));
+			}
+		}
+
+		return render;
+	}
+
+	/**
+	 * Record the render of an overlay
+	 *
+	 * @param overlay overlay
+	 * @param nanos time taken to render
+	 * @param allocatedBefore result of {@link #getAllocatedBytes()} before rendering
+	 */
+	void record(Overlay overlay, long nanos, long allocatedBefore)
+	{
+		statsFor(overlay).record(nanos, allocated(allocatedBefore));
+	}
+
+	void recordLayer(OverlayLayer layer, long nanos, long allocatedBefore)
+	{
+		layerStats.get(layer).record(nanos, allocated(allocatedBefore));
+	}
+
+	/**
+	 * Get a snapshot of the stats of every overlay rendered since the last
+	 * reset, followed by the stats of each layer
+	 */
+	public List<RenderStats> getStats()
+	{
+		final List<RenderStats> stats = new ArrayList<>(overlayStats.size() + layerStats.size());
+		for (RenderStats s : overlayStats.values())
+		{
+			stats.add(s.snapshot());
+		}
+		stats.sort((s1, s2) -> Long.compare(s2.getTotalNanos(), s1.getTotalNanos()));
+
+		for (RenderStats s : layerStats.values())
+		{
+			stats.add(s.snapshot());
+		}
+		return stats;
+	}
+
+	public void reset()
+	{
+		overlayStats.clear();
+		layerStats.values().forEach(RenderStats::reset);
+	}
+
+	/**
+	 * Write the current stats as CSV, with times in microseconds
+	 */
+	public void writeCsv(Writer writer) throws IOException
+	{
+		writer.write(String.join(",", CSV_HEADER));
+		writer.write('\n');
+
+		for (RenderStats s : getStats())
+		{
+			writer.write(s.getType());
+			writer.write(',');
+			writer.write(escape(s.getName()));
+			writer.write(',');
+			writer.write(s.getLayer().name());
+			writer.write(',');
+			writer.write(Long.toString(s.getCount()));
+			writer.write(',');
+			writer.write(Long.toString(micros(s.getTotalNanos())));
+			writer.write(',');
+			writer.write(Long.toString(micros(s.getMeanNanos())));
+			writer.write(',');
+			writer.write(Long.toString(micros(s.getPercentileNanos(0.5))));
+			writer.write(',');
+			writer.write(Long.toString(micros(s.getPercentileNanos(0.95))));
+			writer.write(',');
+			writer.write(Long.toString(micros(s.getPercentileNanos(0.99))));
+			writer.write(',');
+			writer.write(Long.toString(micros(s.getMaxNanos())));
+			writer.write(',');
+			writer.write(s.getAllocatedBytes() < 0 ? "" : Long.toString(s.getAllocatedBytes()));
+			writer.write(',');
+			writer.write(Long.toString(s.getSkipped()));
+			writer.write('\n');
+		}
+	}
+
+	private RenderStats statsFor(Overlay overlay)
+	{
+		RenderStats stats = overlayStats.get(overlay);
+		if (stats == null)
+		{
+			stats = overlayStats.computeIfAbsent(overlay, o -> new RenderStats(o.getClass().getName(), "overlay", o.getLayer()));
+		}
+		return stats;
+	}
+
+	private long allocated(long allocatedBefore)
+	{
+		if (allocatedBefore < 0)
+		{
+			return -1;
+		}
+
+		final long allocatedAfter = getAllocatedBytes();
+		return allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+	}
+
+	private static long micros(long nanos)
+	{
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	private static String escape(String value)
+	{
+		if (value.indexOf(',') == -1 && value.indexOf('"') == -1)
+		{
+			return value;
+		}
+
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static com.sun.management.ThreadMXBean findThreadBean()
+	{
+		try
+		{
+			final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean)
+			{
+				final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+				if (sunBean.isThreadAllocatedMemorySupported())
+				{
+					return sunBean;
+				}
+			}
+		}
+		catch (LinkageError ex)
+		{
+			log.debug("Thread allocation counting is not available", ex);
+		}
+
+		return null;
+	}
+}
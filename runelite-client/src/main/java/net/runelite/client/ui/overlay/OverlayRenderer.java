@@ -34,6 +34,7 @@ import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.swing.SwingUtilities;
@@ -68,6 +69,7 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 	private final Client client;
 	private final OverlayManager overlayManager;
 	private final RuneLiteConfig runeLiteConfig;
+	private final OverlayProfiler profiler;
 
 	// Overlay movement variables
 	private final Point overlayOffset = new Point();
@@ -87,12 +89,14 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 		final Client client,
 		final OverlayManager overlayManager,
 		final RuneLiteConfig runeLiteConfig,
+		final OverlayProfiler profiler,
 		final MouseManager mouseManager,
 		final KeyManager keyManager)
 	{
 		this.client = client;
 		this.overlayManager = overlayManager;
 		this.runeLiteConfig = runeLiteConfig;
+		this.profiler = profiler;
 		keyManager.registerKeyListener(this);
 		mouseManager.registerMouseListener(this);
 	}
@@ -124,6 +128,10 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 			snapCorners = buildSnapCorners();
 		}
 
+		final long budget = TimeUnit.MICROSECONDS.toNanos(runeLiteConfig.overlayRenderBudget());
+		final long layerAllocated = profiler.getAllocatedBytes();
+		final long layerStart = System.nanoTime();
+
 		// Create copy of snap corners because overlays will modify them
 		OverlayBounds snapCorners = new OverlayBounds(this.snapCorners);
 		OverlayUtil.setGraphicProperties(graphics);
@@ -165,7 +173,7 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 
 			if (overlayPosition == OverlayPosition.DYNAMIC || overlayPosition == OverlayPosition.TOOLTIP)
 			{
-				safeRender(client, overlay, layer, graphics, new Point());
+				safeRender(client, overlay, layer, graphics, new Point(), budget);
 			}
 			else
 			{
@@ -199,7 +207,7 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 					overlay.getBounds().setSize(overlay.getPreferredSize());
 				}
 
-				safeRender(client, overlay, layer, graphics, location);
+				safeRender(client, overlay, layer, graphics, location, budget);
 				final Rectangle bounds = overlay.getBounds();
 
 				if (bounds.isEmpty())
@@ -216,6 +224,11 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 				}
 			}
 		}
+
+		if (profiler.isEnabled())
+		{
+			profiler.recordLayer(layer, System.nanoTime() - layerStart, layerAllocated);
+		}
 	}
 
 	@Override
@@ -351,8 +364,15 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 		}
 	}
 
-	private void safeRender(Client client, Overlay overlay, OverlayLayer layer, Graphics2D graphics, Point point)
+	private void safeRender(Client client, Overlay overlay, OverlayLayer layer, Graphics2D graphics, Point point, long budget)
 	{
+		if (budget > 0 && !profiler.shouldRender(overlay, budget))
+		{
+			// keep the previous size, so the overlays laid out after it do not move
+			overlay.getBounds().setLocation(point);
+			return;
+		}
+
 		final Graphics2D subGraphics = (Graphics2D) graphics.create();
 
 		if (!isResizeable && (layer == OverlayLayer.ABOVE_SCENE || layer == OverlayLayer.UNDER_WIDGETS))
@@ -380,7 +400,20 @@ public class OverlayRenderer extends MouseListener implements KeyListener
 		}
 
 		subGraphics.translate(point.x, point.y);
-		final Dimension dimension = MoreObjects.firstNonNull(overlay.render(subGraphics), new Dimension());
+		final Dimension rendered;
+		if (budget > 0 || profiler.isEnabled())
+		{
+			final long allocated = profiler.getAllocatedBytes();
+			final long start = System.nanoTime();
+			rendered = overlay.render(subGraphics);
+			profiler.record(overlay, System.nanoTime() - start, allocated);
+		}
+		else
+		{
+			rendered = overlay.render(subGraphics);
+		}
+
+		final Dimension dimension = MoreObjects.firstNonNull(rendered, new Dimension());
 		subGraphics.dispose();
 		overlay.setBounds(new Rectangle(point, dimension));
 	}
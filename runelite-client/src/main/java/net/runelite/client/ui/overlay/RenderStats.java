@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.ui.overlay;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Render timings of an overlay or overlay layer. Times are recorded into a
+ * histogram of power of two nanosecond buckets. Use {@link #snapshot()}
+ * to read the stats from outside of the client thread.
+ */
+public class RenderStats
+{
+	private static final int BUCKETS = 40;
+
+	@Getter
+	private final String name;
+
+	@Getter
+	private final String type;
+
+	@Getter
+	private final OverlayLayer layer;
+
+	private final long[] histogram = new long[BUCKETS];
+
+	@Getter
+	private long count;
+
+	@Getter
+	private long totalNanos;
+
+	@Getter
+	private long maxNanos;
+
+	/**
+	 * Bytes allocated while rendering, or -1 if allocations are not measured
+	 */
+	@Getter
+	private long allocatedBytes = -1;
+
+	/**
+	 * Number of frames skipped for being over the render budget
+	 */
+	@Getter
+	private long skipped;
+
+	@Getter
+	private boolean throttled;
+
+	// moving average of the render time, used for the render budget
+	private long averageNanos;
+	private int frames;
+
+	RenderStats(String name, String type, OverlayLayer layer)
+	{
+		this.name = name;
+		this.type = type;
+		this.layer = layer;
+	}
+
+	synchronized void record(long nanos, long allocated)
+	{
+		++histogram[bucket(nanos)];
+		++count;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+		averageNanos += (nanos - averageNanos) >> 2;
+
+		if (allocated >= 0)
+		{
+			allocatedBytes = Math.max(allocatedBytes, 0) + allocated;
+		}
+	}
+
+	/**
+	 * Check if the next frame should be rendered. Once the average render time
+	 * goes over the budget only one in every {@code interval} frames is
+	 * rendered, until the average drops back under the budget.
+	 *
+	 * @param budgetNanos render budget per frame
+	 * @param interval frames between renders while throttled
+	 * @return true if the frame should be rendered
+	 */
+	synchronized boolean shouldRender(long budgetNanos, int interval)
+	{
+		throttled = averageNanos > budgetNanos;
+		if (!throttled || ++frames % interval == 0)
+		{
+			return true;
+		}
+
+		++skipped;
+		return false;
+	}
+
+	public synchronized long getMeanNanos()
+	{
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	/**
+	 * Estimate a percentile of the render time from the histogram
+	 *
+	 * @param percentile percentile, between 0 and 1
+	 * @return upper bound of the histogram bucket containing the percentile
+	 */
+	public synchronized long getPercentileNanos(double percentile)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i)
+		{
+			seen += histogram[i];
+			if (seen >= rank)
+			{
+				return Math.min((1L << (i + 1)) - 1, maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	/**
+	 * Copy the current stats, so they can be read consistently while
+	 * rendering continues
+	 */
+	public synchronized RenderStats snapshot()
+	{
+		RenderStats copy = new RenderStats(name, type, layer);
+		System.arraycopy(histogram, 0, copy.histogram, 0, BUCKETS);
+		copy.count = count;
+		copy.totalNanos = totalNanos;
+		copy.maxNanos = maxNanos;
+		copy.allocatedBytes = allocatedBytes;
+		copy.skipped = skipped;
+		copy.averageNanos = averageNanos;
+		copy.frames = frames;
+		copy.throttled = throttled;
+		return copy;
+	}
+
+	synchronized void reset()
+	{
+		Arrays.fill(histogram, 0L);
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+		allocatedBytes = -1;
+		skipped = 0;
+		averageNanos = 0;
+		frames = 0;
+		throttled = false;
+	}
+
+	private static int bucket(long nanos)
+	{
+		return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+	}
+}
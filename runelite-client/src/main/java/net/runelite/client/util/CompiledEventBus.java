@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An event bus which dispatches to subscribers through invokers generated
+ * when they are registered, instead of reflection. It is a drop-in
+ * replacement for {@link EventBus}: subscribers receive events of their
+ * parameter type and its subtypes, are synchronized unless annotated with
+ * {@link AllowConcurrentEvents}, and events posted from within a
+ * subscriber are queued until the current event has been dispatched.
+ * <p>
+ * Subscribers are kept in arrays per exact event class, which are copied
+ * when subscribers are registered or unregistered, so posting an event
+ * does not allocate.
+ */
+@Slf4j
+public class CompiledEventBus extends EventBus
+{
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
+	@FunctionalInterface
+	public interface Invoker
+	{
+		void invoke(Object target, Object event) throws Exception;
+	}
+
+	@Value
+	public static class EventStats
+	{
+		private final Class<?> eventType;
+		private final int subscribers;
+		private final long count;
+		private final long nanos;
+	}
+
+	private final Map<Class<?>, List<SubscriberMethod>> methodsByClass = new ConcurrentHashMap<>();
+	// guarded by this
+	private final Map<Class<?>, List<Subscriber>> subscribersByType = new HashMap<>();
+	private final Map<Class<?>, EventType> eventTypes = new ConcurrentHashMap<>();
+	private final ThreadLocal<DispatchQueue> queues = ThreadLocal.withInitial(DispatchQueue::new);
+
+	@Override
+	public synchronized void register(Object object)
+	{
+		List<Class<?>> changed = new ArrayList<>();
+
+		for (SubscriberMethod method : findSubscriberMethods(object.getClass()))
+		{
+			Subscriber subscriber = new Subscriber(object, method);
+			List<Subscriber> subscribers = subscribersByType.computeIfAbsent(method.eventType, k -> new ArrayList<>());
+			if (!subscribers.contains(subscriber))
+			{
+				subscribers.add(subscriber);
+				changed.add(method.eventType);
+			}
+		}
+
+		rebuild(changed);
+	}
+
+	@Override
+	public synchronized void unregister(Object object)
+	{
+		List<Class<?>> changed = new ArrayList<>();
+
+		for (SubscriberMethod method : findSubscriberMethods(object.getClass()))
+		{
+			List<Subscriber> subscribers = subscribersByType.get(method.eventType);
+			if (subscribers == null || !subscribers.remove(new Subscriber(object, method)))
+			{
+				throw new IllegalArgumentException("missing event subscriber for an annotated method. Is " + object + " registered?");
+			}
+
+			if (subscribers.isEmpty())
+			{
+				subscribersByType.remove(method.eventType);
+			}
+			changed.add(method.eventType);
+		}
+
+		rebuild(changed);
+	}
+
+	@Override
+	public void post(Object event)
+	{
+		DispatchQueue queue = queues.get();
+		if (queue.dispatching)
+		{
+			queue.events.add(event);
+			return;
+		}
+
+		queue.dispatching = true;
+		try
+		{
+			dispatch(event);
+
+			Object next;
+			while ((next = queue.events.poll()) != null)
+			{
+				dispatch(next);
+			}
+		}
+		finally
+		{
+			queue.dispatching = false;
+			queue.events.clear();
+		}
+	}
+
+	/**
+	 * Get the number of times each event type has been posted and the total
+	 * time spent dispatching it
+	 *
+	 * @return stats for each event type which has been posted
+	 */
+	public List<EventStats> getStats()
+	{
+		return eventTypes.values().stream()
+			.map(t -> new EventStats(t.type, t.subscribers.length, t.count.sum(), t.nanos.sum()))
+			.collect(Collectors.toList());
+	}
+
+	private void dispatch(Object event)
+	{
+		EventType eventType = getEventType(event.getClass());
+		Subscriber[] subscribers = eventType.subscribers;
+
+		long start = System.nanoTime();
+		for (Subscriber subscriber : subscribers)
+		{
+			subscriber.dispatch(event);
+		}
+		eventType.nanos.add(System.nanoTime() - start);
+		eventType.count.increment();
+	}
+
+	private EventType getEventType(Class<?> clazz)
+	{
+		EventType eventType = eventTypes.get(clazz);
+		if (eventType != null)
+		{
+			return eventType;
+		}
+
+		synchronized (this)
+		{
+			eventType = eventTypes.get(clazz);
+			if (eventType == null)
+			{
+				eventType = new EventType(clazz);
+				eventType.subscribers = collectSubscribers(eventType.supertypes);
+				eventTypes.put(clazz, eventType);
+			}
+			return eventType;
+		}
+	}
+
+	private void rebuild(List<Class<?>> changed)
+	{
+		assert Thread.holdsLock(this);
+
+		for (EventType eventType : eventTypes.values())
+		{
+			for (Class<?> type : changed)
+			{
+				if (eventType.supertypes.contains(type))
+				{
+					eventType.subscribers = collectSubscribers(eventType.supertypes);
+					break;
+				}
+			}
+		}
+	}
+
+	private Subscriber[] collectSubscribers(Set<Class<?>> types)
+	{
+		assert Thread.holdsLock(this);
+
+		List<Subscriber> subscribers = new ArrayList<>();
+		for (Class<?> type : types)
+		{
+			List<Subscriber> s = subscribersByType.get(type);
+			if (s != null)
+			{
+				subscribers.addAll(s);
+			}
+		}
+		return subscribers.isEmpty() ? NO_SUBSCRIBERS : subscribers.toArray(new Subscriber[0]);
+	}
+
+	private List<SubscriberMethod> findSubscriberMethods(Class<?> clazz)
+	{
+		return methodsByClass.computeIfAbsent(clazz, CompiledEventBus::createSubscriberMethods);
+	}
+
+	private static List<SubscriberMethod> createSubscriberMethods(Class<?> clazz)
+	{
+		// methods overridden in subclasses are only subscribed once
+		Map<String, Method> methods = new HashMap<>();
+		for (Class<?> type : TypeToken.of(clazz).getTypes().rawTypes())
+		{
+			for (Method method : type.getDeclaredMethods())
+			{
+				if (!method.isAnnotationPresent(Subscribe.class) || method.isSynthetic())
+				{
+					continue;
+				}
+
+				Class<?>[] parameterTypes = method.getParameterTypes();
+				if (parameterTypes.length != 1 || parameterTypes[0].isPrimitive())
+				{
+					throw new IllegalArgumentException("Method " + method + " has @Subscribe annotation but has "
+						+ parameterTypes.length + " parameters. Subscriber methods must have exactly 1 non-primitive parameter.");
+				}
+
+				methods.putIfAbsent(method.getName() + parameterTypes[0].getName(), method);
+			}
+		}
+
+		List<SubscriberMethod> subscriberMethods = new ArrayList<>(methods.size());
+		for (Method method : methods.values())
+		{
+			subscriberMethods.add(new SubscriberMethod(method, method.getParameterTypes()[0], createInvoker(method),
+				method.isAnnotationPresent(AllowConcurrentEvents.class)));
+		}
+		return subscriberMethods;
+	}
+
+	private static Invoker createInvoker(Method method)
+	{
+		Class<?> declaringClass = method.getDeclaringClass();
+		Class<?> eventType = method.getParameterTypes()[0];
+
+		// the generated class can only link against classes which this lookup can access
+		if (Modifier.isPublic(method.getModifiers()) && isAccessible(declaringClass) && isAccessible(eventType))
+		{
+			try
+			{
+				MethodHandle handle = LOOKUP.unreflect(method);
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP,
+					"invoke",
+					MethodType.methodType(Invoker.class),
+					INVOKER_TYPE,
+					handle,
+					MethodType.methodType(void.class, declaringClass, eventType));
+				return (Invoker) site.getTarget().invokeExact();
+			}
+			catch (Throwable ex)
+			{
+				log.debug("Unable to generate invoker for {}", method, ex);
+			}
+		}
+
+		method.setAccessible(true);
+		final MethodHandle handle;
+		try
+		{
+			handle = LOOKUP.unreflect(method).asType(INVOKER_TYPE);
+		}
+		catch (IllegalAccessException ex)
+		{
+			throw new IllegalArgumentException("Unable to access subscriber method " + method, ex);
+		}
+
+		return (target, event) ->
+		{
+			try
+			{
+				handle.invokeExact(target, event);
+			}
+			catch (Exception | Error ex)
+			{
+				throw ex;
+			}
+			catch (Throwable ex)
+			{
+				throw new UndeclaredThrowableException(ex);
+			}
+		};
+	}
+
+	private static boolean isAccessible(Class<?> clazz)
+	{
+		if (!Modifier.isPublic(clazz.getModifiers()))
+		{
+			return false;
+		}
+
+		// and must be visible from this class loader
+		try
+		{
+			return Class.forName(clazz.getName(), false, CompiledEventBus.class.getClassLoader()) == clazz;
+		}
+		catch (ClassNotFoundException ex)
+		{
+			return false;
+		}
+	}
+
+	private static class SubscriberMethod
+	{
+		private final Method method;
+		private final Class<?> eventType;
+		private final Invoker invoker;
+		private final boolean concurrent;
+
+		SubscriberMethod(Method method, Class<?> eventType, Invoker invoker, boolean concurrent)
+		{
+			this.method = method;
+			this.eventType = eventType;
+			this.invoker = invoker;
+			this.concurrent = concurrent;
+		}
+	}
+
+	private static class Subscriber
+	{
+		private final Object target;
+		private final SubscriberMethod method;
+
+		Subscriber(Object target, SubscriberMethod method)
+		{
+			this.target = target;
+			this.method = method;
+		}
+
+		void dispatch(Object event)
+		{
+			try
+			{
+				if (method.concurrent)
+				{
+					method.invoker.invoke(target, event);
+				}
+				else
+				{
+					synchronized (this)
+					{
+						method.invoker.invoke(target, event);
+					}
+				}
+			}
+			catch (Exception ex)
+			{
+				log.warn("uncaught exception in event subscriber {}", method.method, ex);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Subscriber))
+			{
+				return false;
+			}
+
+			Subscriber other = (Subscriber) obj;
+			return target == other.target && method == other.method;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(target) * 31 + method.hashCode();
+		}
+	}
+
+	private static class EventType
+	{
+		private final Class<?> type;
+		private final Set<Class<?>> supertypes;
+		private volatile Subscriber[] subscribers;
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+
+		EventType(Class<?> type)
+		{
+			this.type = type;
+			this.supertypes = ImmutableSet.copyOf(TypeToken.of(type).getTypes().rawTypes());
+		}
+	}
+
+	private static class DispatchQueue
+	{
+		private final ArrayDeque<Object> events = new ArrayDeque<>();
+		private boolean dispatching;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.config;
+
+import com.google.common.eventbus.EventBus;
+import java.awt.Color;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares config proxy getters against the previous invocation handler,
+ * which looked up annotations and parsed the value on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigInvocationBenchmark
+{
+	public enum Style
+	{
+		SMALL,
+		LARGE
+	}
+
+	@ConfigGroup("benchmark")
+	public interface BenchmarkConfig
+	{
+		@ConfigItem(
+			keyName = "color",
+			name = "Color",
+			description = ""
+		)
+		default Color color()
+		{
+			return Color.RED;
+		}
+
+		@ConfigItem(
+			keyName = "style",
+			name = "Style",
+			description = ""
+		)
+		default Style style()
+		{
+			return Style.SMALL;
+		}
+
+		@ConfigItem(
+			keyName = "unset",
+			name = "Unset",
+			description = ""
+		)
+		default int unset()
+		{
+			return 42;
+		}
+	}
+
+	private BenchmarkConfig config;
+	private BenchmarkConfig legacyConfig;
+
+	@Setup
+	public void setup()
+	{
+		ConfigManager manager = new ConfigManager();
+		manager.eventBus = new EventBus();
+		// don't save the configuration
+		manager.executor = mock(ScheduledExecutorService.class);
+
+		manager.setConfiguration("benchmark", "color", Color.GREEN);
+		manager.setConfiguration("benchmark", "style", Style.LARGE);
+
+		config = manager.getConfig(BenchmarkConfig.class);
+		legacyConfig = (BenchmarkConfig) Proxy.newProxyInstance(BenchmarkConfig.class.getClassLoader(), new Class<?>[]
+		{
+			BenchmarkConfig.class
+		}, new LegacyInvocationHandler(manager));
+	}
+
+	@Benchmark
+	public void legacy(Blackhole blackhole)
+	{
+		blackhole.consume(legacyConfig.color());
+		blackhole.consume(legacyConfig.style());
+		blackhole.consume(legacyConfig.unset());
+	}
+
+	@Benchmark
+	public void cached(Blackhole blackhole)
+	{
+		blackhole.consume(config.color());
+		blackhole.consume(config.style());
+		blackhole.consume(config.unset());
+	}
+
+	/**
+	 * The getter path of the previous invocation handler
+	 */
+	private static class LegacyInvocationHandler implements InvocationHandler
+	{
+		private final ConfigManager manager;
+
+		LegacyInvocationHandler(ConfigManager manager)
+		{
+			this.manager = manager;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			Class<?> iface = proxy.getClass().getInterfaces()[0];
+
+			ConfigGroup group = iface.getAnnotation(ConfigGroup.class);
+			ConfigItem item = method.getAnnotation(ConfigItem.class);
+
+			String value = manager.getConfiguration(group.value(), item.keyName());
+			if (value == null)
+			{
+				return ConfigInvocationHandler.callDefaultMethod(proxy, method, null);
+			}
+
+			return ConfigManager.stringToObject(value, method.getReturnType());
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder()
+			.include(ConfigInvocationBenchmark.class.getSimpleName())
+			.addProfiler("gc")
+			.build()).run();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.ui.overlay;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class OverlayProfilerTest
+{
+	private static class TestOverlay extends Overlay
+	{
+		@Override
+		public Dimension render(Graphics2D graphics)
+		{
+			return null;
+		}
+	}
+
+	@Test
+	public void testRecord()
+	{
+		OverlayProfiler profiler = new OverlayProfiler();
+		Overlay overlay = new TestOverlay();
+
+		for (int i = 0; i < 99; ++i)
+		{
+			profiler.record(overlay, 1000, -1);
+		}
+		profiler.record(overlay, 100_000, -1);
+
+		List<RenderStats> stats = profiler.getStats();
+		assertEquals(1 + OverlayLayer.values().length, stats.size());
+
+		RenderStats s = stats.get(0);
+		assertEquals(TestOverlay.class.getName(), s.getName());
+		assertEquals(100, s.getCount());
+		assertEquals(99 * 1000 + 100_000, s.getTotalNanos());
+		assertEquals(100_000, s.getMaxNanos());
+		assertEquals(-1, s.getAllocatedBytes());
+
+		// 1000 is in the [512, 1024) bucket
+		assertEquals(1023, s.getPercentileNanos(0.5));
+		assertEquals(1023, s.getPercentileNanos(0.99));
+		assertEquals(100_000, s.getPercentileNanos(1));
+
+		profiler.reset();
+		assertEquals(OverlayLayer.values().length, profiler.getStats().size());
+	}
+
+	@Test
+	public void testBudget()
+	{
+		OverlayProfiler profiler = new OverlayProfiler();
+		Overlay overlay = new TestOverlay();
+		long budget = TimeUnit.MICROSECONDS.toNanos(100);
+
+		assertTrue(profiler.shouldRender(overlay, budget));
+		for (int i = 0; i < 10; ++i)
+		{
+			profiler.record(overlay, TimeUnit.MILLISECONDS.toNanos(1), -1);
+		}
+
+		int rendered = 0;
+		for (int i = 0; i < OverlayProfiler.THROTTLE_INTERVAL * 4; ++i)
+		{
+			if (profiler.shouldRender(overlay, budget))
+			{
+				++rendered;
+			}
+		}
+		assertEquals(4, rendered);
+
+		RenderStats s = profiler.getStats().get(0);
+		assertTrue(s.isThrottled());
+		assertEquals(OverlayProfiler.THROTTLE_INTERVAL * 4 - 4, s.getSkipped());
+
+		// back under budget
+		for (int i = 0; i < 50; ++i)
+		{
+			profiler.record(overlay, 1000, -1);
+		}
+		assertTrue(profiler.shouldRender(overlay, budget));
+		assertFalse(profiler.getStats().get(0).isThrottled());
+	}
+
+	@Test
+	public void testWriteCsv() throws IOException
+	{
+		OverlayProfiler profiler = new OverlayProfiler();
+		profiler.record(new TestOverlay(), 2500, -1);
+		profiler.recordLayer(OverlayLayer.ABOVE_SCENE, 3000, -1);
+
+		StringWriter writer = new StringWriter();
+		profiler.writeCsv(writer);
+
+		String[] lines = writer.toString().split("\n");
+		assertEquals(2 + OverlayLayer.values().length, lines.length);
+		assertEquals("type,name,layer,count,total_us,mean_us,p50_us,p95_us,p99_us,max_us,allocated_bytes,skipped", lines[0]);
+		assertEquals("overlay," + TestOverlay.class.getName() + ",UNDER_WIDGETS,1,2,2,2,2,2,2,,0", lines[1]);
+		assertEquals("layer,ABOVE_SCENE,ABOVE_SCENE,1,3,3,3,3,3,3,,0", lines[2]);
+	}
+}
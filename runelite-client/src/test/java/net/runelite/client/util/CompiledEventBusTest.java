@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.util;
+
+import com.google.common.eventbus.Subscribe;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledEventBusTest
+{
+	private CompiledEventBus eventBus;
+
+	@Before
+	public void before()
+	{
+		eventBus = new CompiledEventBus();
+	}
+
+	@Test
+	public void testPost()
+	{
+		Listener listener = new Listener();
+		eventBus.register(listener);
+		// registering twice does not subscribe twice
+		eventBus.register(listener);
+
+		eventBus.post("test");
+		eventBus.post(42);
+
+		assertEquals(2, listener.events.size());
+		assertEquals("test", listener.events.get(0));
+		assertEquals(1, listener.strings);
+		assertEquals(42, listener.events.get(1));
+
+		eventBus.unregister(listener);
+		eventBus.post("test");
+		assertEquals(2, listener.events.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnregisterMissing()
+	{
+		eventBus.unregister(new Listener());
+	}
+
+	@Test
+	public void testPrivateSubscriber()
+	{
+		PrivateListener listener = new PrivateListener();
+		eventBus.register(listener);
+
+		eventBus.post("test");
+		assertEquals(1, listener.count);
+	}
+
+	@Test
+	public void testNestedPost()
+	{
+		List<String> order = new ArrayList<>();
+		eventBus.register(new Object()
+		{
+			@Subscribe
+			public void onString(String event)
+			{
+				order.add(event);
+				if (event.equals("outer"))
+				{
+					eventBus.post("inner");
+					order.add("outer done");
+				}
+			}
+		});
+
+		eventBus.post("outer");
+		assertEquals(3, order.size());
+		assertEquals("outer", order.get(0));
+		assertEquals("outer done", order.get(1));
+		assertEquals("inner", order.get(2));
+	}
+
+	@Test
+	public void testException()
+	{
+		Listener listener = new Listener();
+		eventBus.register(new Object()
+		{
+			@Subscribe
+			public void onString(String event)
+			{
+				throw new RuntimeException();
+			}
+		});
+		eventBus.register(listener);
+
+		eventBus.post("test");
+		assertEquals(1, listener.strings);
+	}
+
+	@Test
+	public void testStats()
+	{
+		eventBus.register(new Listener());
+		eventBus.post("a");
+		eventBus.post("b");
+
+		boolean found = false;
+		for (CompiledEventBus.EventStats stats : eventBus.getStats())
+		{
+			if (stats.getEventType() == String.class)
+			{
+				assertEquals(2, stats.getCount());
+				assertEquals(2, stats.getSubscribers());
+				found = true;
+			}
+		}
+		assertTrue(found);
+	}
+
+	public static class Listener
+	{
+		private final List<Object> events = new ArrayList<>();
+		private int strings;
+
+		@Subscribe
+		public void onObject(Object event)
+		{
+			events.add(event);
+		}
+
+		@Subscribe
+		public void onString(String event)
+		{
+			++strings;
+		}
+	}
+
+	private static class PrivateListener
+	{
+		private int count;
+
+		@Subscribe
+		private void onString(String event)
+		{
+			++count;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.plugin.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginIndexProcessorTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testIndex() throws IOException
+	{
+		File src = folder.newFolder();
+		File out = folder.newFolder();
+
+		File descriptor = source(src, "net/runelite/client/plugins/PluginDescriptor.java",
+			"package net.runelite.client.plugins;\n"
+				+ "public @interface PluginDescriptor { String name(); }");
+		File plugin = source(src, "net/runelite/client/plugins/test/TestPlugin.java",
+			"package net.runelite.client.plugins.test;\n"
+				+ "@net.runelite.client.plugins.PluginDescriptor(name = \"Test\")\n"
+				+ "public class TestPlugin {\n"
+				+ "  @net.runelite.client.plugins.PluginDescriptor(name = \"Nested\")\n"
+				+ "  public static class Nested {}\n"
+				+ "}");
+		File other = source(src, "net/runelite/client/plugins/test/OtherPlugin.java",
+			"package net.runelite.client.plugins.test;\n"
+				+ "@net.runelite.client.plugins.PluginDescriptor(name = \"Other\")\n"
+				+ "public class OtherPlugin {}");
+
+		assertTrue(compile(out, descriptor, plugin, other));
+		assertEquals(Arrays.asList("net.runelite.client.plugins.test.OtherPlugin", "net.runelite.client.plugins.test.TestPlugin"),
+			index(out));
+
+		// an incremental compile keeps the existing entries
+		assertTrue(compile(out, other));
+		assertEquals(Arrays.asList("net.runelite.client.plugins.test.OtherPlugin", "net.runelite.client.plugins.test.TestPlugin"),
+			index(out));
+	}
+
+	private static File source(File dir, String path, String content) throws IOException
+	{
+		File file = new File(dir, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static boolean compile(File out, File... sources) throws IOException
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8))
+		{
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sources);
+			List<String> options = Arrays.asList("-d", out.getPath(), "-classpath", out.getPath());
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+			task.setProcessors(Collections.singletonList(new PluginIndexProcessor()));
+			return task.call();
+		}
+	}
+
+	private static List<String> index(File out) throws IOException
+	{
+		return Files.readAllLines(new File(out, PluginIndexProcessor.PLUGIN_INDEX).toPath(), StandardCharsets.UTF_8);
+	}
+}